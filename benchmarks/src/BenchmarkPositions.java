@@ -0,0 +1,78 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is a class that builds the boards the benchmarks run on. The games are played with a
+ * fixed rule instead of at random, so every run measures the same boards: the player to move
+ * takes the first column, starting from a column that shifts with every move, that neither
+ * wins the game nor is full.
+ */
+public final class BenchmarkPositions {
+
+  /**
+   * This is an enum for the stage of the game a board is taken from.
+   */
+  public enum Stage {
+    EMPTY(0),
+    MIDGAME(20),
+    NEAR_FULL(38);
+
+    private final int discs;
+
+    Stage(int discs) {
+      this.discs = discs;
+    }
+
+    public int getDiscs() {
+      return discs;
+    }
+  }
+
+  private BenchmarkPositions() {
+  }
+
+  /**
+   * Plays a game up to the stage without anybody winning.
+   *
+   * @param stage  the stage of the game.
+   * @return  the board indexed by [row][column], Player.ONE having moved first.
+   */
+  public static Player[][] board(Stage stage) {
+    BitBoard board = new BitBoard();
+    for (int move = 0 ; move < stage.getDiscs() ; move++) {
+      Player player = move % 2 == 0 ? Player.ONE : Player.TWO;
+      board.play(player, nonWinningColumn(board, player, (move * 3) % BitBoard.COLUMN_LENGTH));
+    }
+    Player[][] cells = new Player[BitBoard.ROW_LENGTH][BitBoard.COLUMN_LENGTH];
+    board.copyInto(cells);
+    return cells;
+  }
+
+  /**
+   * Returns the player to move at the stage.
+   */
+  public static Player nextPlayer(Stage stage) {
+    return stage.getDiscs() % 2 == 0 ? Player.ONE : Player.TWO;
+  }
+
+  /**
+   * Returns the column closest to the center that is not full.
+   */
+  public static int playableColumn(ConnectFourModel model) {
+    for (int column : NegamaxStrategy.COLUMN_ORDER) {
+      if (!model.columnIsFull(column)) {
+        return column;
+      }
+    }
+    throw new IllegalStateException("The board is full");
+  }
+
+  private static int nonWinningColumn(BitBoard board, Player player, int start) {
+    for (int i = 0 ; i < BitBoard.COLUMN_LENGTH ; i++) {
+      int column = (start + i) % BitBoard.COLUMN_LENGTH;
+      if (!board.columnIsFull(column) && !board.isWinningMove(player, column)) {
+        return column;
+      }
+    }
+    throw new IllegalStateException("Every move ends the game");
+  }
+}
@@ -0,0 +1,170 @@
+package edu.nyu.pqs.connectfour;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This is a class that benchmarks the hot paths of ConnectFourModel on an empty board, in the
+ * middle of a game, and on a board that is nearly full. putDisc takes its move back with undo()
+ * within the call, since setting the board up again before every call would cost JMH more than
+ * the move itself. The other benchmarks that change the board get it back before every call,
+ * outside of the measured time.
+ *
+ * Run with: java -jar benchmarks/target/benchmarks.jar ConnectFourModelBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectFourModelBenchmark {
+
+  private static final MoveStrategy ONE_PLY = new OnePlyStrategy();
+
+  /**
+   * This is the state of the benchmarks that only read the board or leave it as they found it.
+   */
+  @State(Scope.Thread)
+  public static class Board {
+    @Param({ "EMPTY", "MIDGAME", "NEAR_FULL" })
+    public BenchmarkPositions.Stage stage;
+
+    ConnectFourModel model;
+    Player nextPlayer;
+    int column;
+
+    @Setup(Level.Trial)
+    public void setupBoard() {
+      model = new ConnectFourModel();
+      model.setBoard(BenchmarkPositions.board(stage));
+      model.setPreviousTurn(Player.EMPTY);
+      nextPlayer = BenchmarkPositions.nextPlayer(stage);
+      column = BenchmarkPositions.playableColumn(model);
+    }
+  }
+
+  /**
+   * This is the state of the benchmarks that change the board, which is set again before
+   * every call.
+   */
+  @State(Scope.Thread)
+  public static class FreshBoard {
+    @Param({ "EMPTY", "MIDGAME", "NEAR_FULL" })
+    public BenchmarkPositions.Stage stage;
+
+    ConnectFourModel model;
+    Player[][] board;
+    Player nextPlayer;
+    int column;
+
+    @Setup(Level.Trial)
+    public void setupModel() {
+      model = new ConnectFourModel();
+      board = BenchmarkPositions.board(stage);
+      nextPlayer = BenchmarkPositions.nextPlayer(stage);
+      model.setBoard(board);
+      column = BenchmarkPositions.playableColumn(model);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetBoard() {
+      model.setBoard(board);
+      model.setPreviousTurn(Player.EMPTY);
+    }
+  }
+
+  /**
+   * Plays a move and takes it back, so the board is the same for every call.
+   */
+  @Benchmark
+  public boolean putDisc(Board state) {
+    boolean played = state.model.putDisc(state.nextPlayer, state.column);
+    state.model.undo();
+    return played;
+  }
+
+  @Benchmark
+  public boolean playerWins(Board state) {
+    return state.model.playerWins(Player.ONE) | state.model.playerWins(Player.TWO);
+  }
+
+  @Benchmark
+  public boolean isWinningMove(Board state) {
+    return state.model.isWinningMove(state.nextPlayer, state.column);
+  }
+
+  @Benchmark
+  public boolean checkRow(Board state) {
+    return state.model.checkRow(Player.ONE, 5, 3);
+  }
+
+  @Benchmark
+  public boolean checkColumn(Board state) {
+    return state.model.checkColumn(Player.ONE, 5, 3);
+  }
+
+  @Benchmark
+  public boolean checkDiagonal(Board state) {
+    return state.model.checkDiagonal(Player.ONE, 5, 3);
+  }
+
+  @Benchmark
+  public int topAvailableRow(Board state) {
+    int sum = 0;
+    for (int column = 0 ; column < state.model.getBoardColumnLength() ; column++) {
+      sum += state.model.topAvailableRow(column);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public ConnectFourModel clearBoard(FreshBoard state) {
+    state.model.clearBoard();
+    return state.model;
+  }
+
+  /**
+   * Plays the original heuristic of the AI: an immediate win, otherwise a random column.
+   */
+  @Benchmark
+  public Status smartColumnOnePly(FreshBoard state) {
+    state.model.setAIStrategy(ONE_PLY);
+    state.model.smartColumn();
+    return state.model.getStatus();
+  }
+
+  /**
+   * Plays the default AI, the negamax search, limited to a fixed depth.
+   */
+  @Benchmark
+  public Status smartColumnSearch(FreshBoard state, Search search) {
+    state.model.setAIStrategy(search.strategy);
+    state.model.smartColumn();
+    return state.model.getStatus();
+  }
+
+  /**
+   * This is the state holding the search, so that its table is kept from one call to the next
+   * as it is in a game.
+   */
+  @State(Scope.Thread)
+  public static class Search {
+    NegamaxStrategy strategy;
+
+    @Setup(Level.Trial)
+    public void setupSearch() {
+      strategy = new NegamaxStrategy.Builder().maxDepth(8).timeBudgetMillis(0).build();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package edu.nyu.pqs.connectfour;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This is a class that measures how the number of games played per second scales with the
+ * number of models running side by side in one process. Every model has a thread of its own
+ * and plays whole multi-player games with random moves, with no listener and no AI, so only the
+ * model itself is measured. A batch of games is played by every model per call, and the games
+ * are reported as a rate.
+ *
+ * Run with: java -jar benchmarks/target/benchmarks.jar ModelInstancesBenchmark -p instances=1,4
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelInstancesBenchmark {
+
+  private static final int GAMES_PER_BATCH = 1000;
+
+  @Param({ "1", "2", "4", "8" })
+  public int instances;
+
+  private ExecutorService pool;
+  private List<Callable<Integer>> batches;
+
+  @Setup(Level.Trial)
+  public void setupModels() {
+    pool = Executors.newFixedThreadPool(instances);
+    batches = new ArrayList<Callable<Integer>>();
+    for (int i = 0 ; i < instances ; i++) {
+      final ConnectFourModel model = new ConnectFourModel();
+      final SplittableRandom random = new SplittableRandom(i);
+      batches.add(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          int wins = 0;
+          for (int game = 0 ; game < GAMES_PER_BATCH ; game++) {
+            if (playGame(model, random) == Status.WIN) {
+              wins++;
+            }
+          }
+          return wins;
+        }
+      });
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdownPool() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * This is the counter of the games, reported by JMH as a rate.
+   */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Games {
+    public long games;
+  }
+
+  @Benchmark
+  public int playGames(Games counter) throws InterruptedException, ExecutionException {
+    int wins = 0;
+    for (Future<Integer> batch : pool.invokeAll(batches)) {
+      wins += batch.get();
+    }
+    counter.games += (long) GAMES_PER_BATCH * instances;
+    return wins;
+  }
+
+  /**
+   * Plays a game with random moves until it is won or drawn.
+   */
+  static Status playGame(ConnectFourModel model, SplittableRandom random) {
+    model.startGame(edu.nyu.pqs.connectfour.Mode.MULTI);
+    Player player = Player.ONE;
+    while (model.getStatus() == Status.IN_PROGRESS) {
+      int column = random.nextInt(model.getBoardColumnLength());
+      if (model.putDisc(player, column)) {
+        player = player == Player.ONE ? Player.TWO : Player.ONE;
+      }
+    }
+    return model.getStatus();
+  }
+}
@@ -0,0 +1,110 @@
+package edu.nyu.pqs.connectfour;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This is a class that measures how the root-split search and the Lazy SMP search scale with the
+ * number of threads, searching the same middle-game position to a fixed depth with a fresh table
+ * every time. Along with the searches per second, the nodes searched per second are reported.
+ *
+ * Run with: java -jar benchmarks/target/benchmarks.jar ParallelSearchBenchmark -p threads=1,4
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParallelSearchBenchmark {
+
+  @Param({ "1", "4", "16", "32" })
+  public int threads;
+
+  @Param({ "12" })
+  public int depth;
+
+  private Position position;
+
+  @Setup(Level.Trial)
+  public void setupPosition() {
+    position = new Position();
+    for (int column : new int[] { 3, 3, 2, 4, 2, 2 }) {
+      position.play(column);
+    }
+  }
+
+  /**
+   * This is the state holding the root-split search, created again before every search.
+   */
+  @State(Scope.Thread)
+  public static class RootSplit {
+    RootSplitStrategy strategy;
+
+    @Setup(Level.Invocation)
+    public void setupSearch(ParallelSearchBenchmark benchmark) {
+      strategy = new RootSplitStrategy.Builder().threads(benchmark.threads)
+          .maxDepth(benchmark.depth).timeBudgetMillis(0).transpositionTableMegabytes(16).build();
+    }
+
+    @TearDown(Level.Invocation)
+    public void shutdownSearch() {
+      strategy.shutdown();
+    }
+  }
+
+  /**
+   * This is the state holding the Lazy SMP search, created again before every search.
+   */
+  @State(Scope.Thread)
+  public static class LazySmp {
+    LazySmpStrategy strategy;
+
+    @Setup(Level.Invocation)
+    public void setupSearch(ParallelSearchBenchmark benchmark) {
+      strategy = new LazySmpStrategy(benchmark.threads, 16, new NegamaxStrategy.Builder()
+          .maxDepth(benchmark.depth).timeBudgetMillis(0));
+    }
+
+    @TearDown(Level.Invocation)
+    public void shutdownSearch() {
+      strategy.shutdown();
+    }
+  }
+
+  /**
+   * This is the counter of the nodes, reported by JMH as a rate like the searches themselves.
+   */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Nodes {
+    public long nodes;
+  }
+
+  @Benchmark
+  public int rootSplit(RootSplit search, Nodes counter) {
+    int column = search.strategy.chooseColumn(position);
+    counter.nodes += search.strategy.getNodeCount();
+    return column;
+  }
+
+  @Benchmark
+  public int lazySmp(LazySmp search, Nodes counter) {
+    int column = search.strategy.chooseColumn(position);
+    counter.nodes += search.strategy.getNodeCount();
+    return column;
+  }
+}
@@ -0,0 +1,205 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is the board of a game of any size and any length of line to connect, for the boards
+ * that do not fit the packed layout of BitBoard. The cells are kept in an array along with the
+ * height of each column, so dropping a disc does not walk the column, and a move is checked by
+ * counting the discs of the player on both sides of the new disc along the four directions,
+ * which takes time in the length of the line rather than in the size of the board.
+ */
+public final class ArrayBoard implements Board {
+
+  private static final int[][] DIRECTIONS = { { 1, 0 }, { 0, 1 }, { 1, 1 }, { 1, -1 } };
+
+  private final int rowLength;
+  private final int columnLength;
+  private final int connectLength;
+  private final Player[][] cells;
+  private final int[] heights;
+
+  /**
+   * Creates an empty board.
+   *
+   * @param rows     the number of rows, at least 1.
+   * @param columns  the number of columns, at least 1.
+   * @param connect  the number of discs to connect to win, at least 1.
+   */
+  public ArrayBoard(int rows, int columns, int connect) {
+    if (rows < 1 || columns < 1 || connect < 1) {
+      throw new IllegalArgumentException("dimensions must be at least 1: " + rows + "x"
+          + columns + ", connect " + connect);
+    }
+    rowLength = rows;
+    columnLength = columns;
+    connectLength = connect;
+    cells = new Player[rows][columns];
+    heights = new int[columns];
+    clear();
+  }
+
+  @Override
+  public int play(Player player, int column) {
+    int row = topAvailableRow(column);
+    cells[row][column] = player;
+    heights[column]++;
+    return row;
+  }
+
+  @Override
+  public int undo(int column) {
+    int row = topAvailableRow(column) + 1;
+    cells[row][column] = Player.EMPTY;
+    heights[column]--;
+    return row;
+  }
+
+  @Override
+  public boolean isWinningMove(Player player, int column) {
+    int row = topAvailableRow(column);
+    for (int[] direction : DIRECTIONS) {
+      int connected = 1 + countFrom(player, row, column, direction[0], direction[1])
+          + countFrom(player, row, column, -direction[0], -direction[1]);
+      if (connected >= connectLength) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean hasWon(Player player) {
+    for (int row = 0 ; row < rowLength ; row++) {
+      for (int column = 0 ; column < columnLength ; column++) {
+        if (cells[row][column] != player) {
+          continue;
+        }
+        for (int[] direction : DIRECTIONS) {
+          if (!isPlayerAt(player, row - direction[0], column - direction[1])
+              && 1 + countFrom(player, row, column, direction[0], direction[1])
+                  >= connectLength) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean columnIsFull(int column) {
+    return cells[0][column] != Player.EMPTY;
+  }
+
+  @Override
+  public boolean isFull() {
+    for (int column = 0 ; column < columnLength ; column++) {
+      if (!columnIsFull(column)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int topAvailableRow(int column) {
+    return (rowLength - 1) - heights[column];
+  }
+
+  @Override
+  public void clear() {
+    for (int row = 0 ; row < rowLength ; row++) {
+      for (int column = 0 ; column < columnLength ; column++) {
+        cells[row][column] = Player.EMPTY;
+      }
+    }
+    for (int column = 0 ; column < columnLength ; column++) {
+      heights[column] = 0;
+    }
+  }
+
+  @Override
+  public Player getDiscAt(int row, int column) {
+    return cells[row][column];
+  }
+
+  @Override
+  public void setDiscAt(Player player, int row, int column) {
+    cells[row][column] = player;
+    heights[column] = countHeight(column);
+  }
+
+  @Override
+  public void load(Player[][] cells) {
+    clear();
+    for (int row = 0 ; row < cells.length && row < rowLength ; row++) {
+      for (int column = 0 ; column < cells[row].length && column < columnLength ; column++) {
+        Player player = cells[row][column];
+        if (player != null) {
+          this.cells[row][column] = player;
+        }
+      }
+    }
+    for (int column = 0 ; column < columnLength ; column++) {
+      heights[column] = countHeight(column);
+    }
+  }
+
+  @Override
+  public void copyInto(Player[][] cells) {
+    for (int row = 0 ; row < rowLength ; row++) {
+      System.arraycopy(this.cells[row], 0, cells[row], 0, columnLength);
+    }
+  }
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  @Override
+  public int getRowLength() {
+    return rowLength;
+  }
+
+  @Override
+  public int getColumnLength() {
+    return columnLength;
+  }
+
+  @Override
+  public int getConnectLength() {
+    return connectLength;
+  }
+
+  /**
+   * Counts the discs of the player next to the cell in the direction, not counting the cell.
+   * No more discs are counted than are needed to win.
+   */
+  private int countFrom(Player player, int row, int column, int rowStep, int columnStep) {
+    int count = 0;
+    int r = row + rowStep;
+    int c = column + columnStep;
+    while (count < connectLength && isPlayerAt(player, r, c)) {
+      count++;
+      r += rowStep;
+      c += columnStep;
+    }
+    return count;
+  }
+
+  private boolean isPlayerAt(Player player, int row, int column) {
+    return row >= 0 && row < rowLength && column >= 0 && column < columnLength
+        && cells[row][column] == player;
+  }
+
+  /**
+   * Counts the discs stacked from the bottom of the column without a gap.
+   */
+  private int countHeight(int column) {
+    int height = 0;
+    while (height < rowLength && cells[rowLength - 1 - height][column] != Player.EMPTY) {
+      height++;
+    }
+    return height;
+  }
+}
@@ -0,0 +1,454 @@
+package edu.nyu.pqs.connectfour;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * This is a listener that hands the events of the model over to another listener on a thread
+ * of its own. The model only puts the event on the queue of this listener and goes on with the
+ * next move, so a listener that is slow, or blocked on a modal dialog, never stalls the game.
+ * Events are delivered in the order they were fired: the delivery thread takes everything that
+ * has been queued in one go and delivers the batch before taking the next one.
+ *
+ * A listener that has to be called on a thread of another framework, such as a Swing view on the
+ * event dispatch thread, is given an executor instead, like SwingUtilities.invokeLater(). The
+ * batches are then handed to the executor one at a time: the next one is only handed over once
+ * the one before has been delivered, so the events keep their order even if the listener opens
+ * a modal dialog that runs the tasks of the executor meanwhile.
+ *
+ * The board given with updateBoard() is copied when the event is queued, since the model goes on
+ * changing its own array. If updates are coalesced, an updateBoard() that follows another one
+ * still waiting in the queue replaces it, so the listener only sees the latest board and the last
+ * cell that changed. This only suits listeners that redraw from the board they are given.
+ *
+ * The depth of the queue and the latency from the firing of an event to the return of the
+ * listener are recorded, to be read from any thread.
+ */
+public class AsyncListener implements ConnectFourListener {
+
+  private static final int CLEAR_BOARD = 0;
+  private static final int GAME_STARTED = 1;
+  private static final int GAME_OVER = 2;
+  private static final int UPDATE_BOARD = 3;
+  private static final int NOT_YOUR_TURN = 4;
+  private static final int COLUMN_IS_FULL = 5;
+  private static final int DISPOSE_FRAME = 6;
+  private static final int MOVE_UNDONE = 7;
+
+  private final ConnectFourListener listener;
+  private final boolean coalesceUpdates;
+  private final ArrayDeque<Event> queue;
+  private final Thread thread;
+  private final Executor executor;
+  private final Runnable deliverBatch;
+  private boolean delivering;
+  private boolean scheduled;
+  private boolean closed;
+  private int maxQueueDepth;
+  private long coalesced;
+  private volatile long delivered;
+  private volatile long totalLatencyNanos;
+  private volatile long maxLatencyNanos;
+
+  /**
+   * This class is an event waiting in the queue.
+   */
+  private static class Event {
+    private final int type;
+    private final long firedAt;
+    private Player[][] board;
+    private Player player;
+    private int row;
+    private int column;
+    private Status status;
+    private Mode mode;
+
+    Event(int type) {
+      this.type = type;
+      firedAt = System.nanoTime();
+    }
+  }
+
+  /**
+   * This class is the builder for the listener.
+   */
+  public static class Builder {
+    private final ConnectFourListener listener;
+    private boolean coalesceUpdates = false;
+    private String threadName = "connectfour-listener";
+    private Executor executor = null;
+
+    /**
+     * Creates the builder for the listener the events will be delivered to.
+     *
+     * @param listener  the listener that will be called on the delivery thread or executor.
+     */
+    public Builder(ConnectFourListener listener) {
+      if (listener == null) {
+        throw new IllegalArgumentException("listener is null");
+      }
+      this.listener = listener;
+    }
+
+    /**
+     * Makes an updateBoard() replace the one before it if the latter has not been delivered.
+     *
+     * @param coalesceUpdates  whether updates are coalesced, false by default.
+     */
+    public Builder coalesceUpdates(boolean coalesceUpdates) {
+      this.coalesceUpdates = coalesceUpdates;
+      return this;
+    }
+
+    /**
+     * Names the delivery thread, as it shows up in thread dumps.
+     *
+     * @param threadName  the name of the thread.
+     */
+    public Builder threadName(String threadName) {
+      this.threadName = threadName;
+      return this;
+    }
+
+    /**
+     * Delivers the batches through the executor instead of a thread of the listener's own.
+     *
+     * @param executor  the executor running the deliveries, one batch at a time, or null for a
+     *                  delivery thread.
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Build the listener with the corresponding options and start its delivery thread, unless
+     * it delivers through an executor.
+     *
+     * @return  AsyncListener that has been built.
+     */
+    public AsyncListener build() {
+      return new AsyncListener(this);
+    }
+  }
+
+  private AsyncListener(Builder builder) {
+    listener = builder.listener;
+    coalesceUpdates = builder.coalesceUpdates;
+    queue = new ArrayDeque<Event>();
+    executor = builder.executor;
+    deliverBatch = new Runnable() {
+      @Override
+      public void run() {
+        deliverBatch();
+      }
+    };
+    if (executor != null) {
+      thread = null;
+      return;
+    }
+    thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        deliverEvents();
+      }
+    }, builder.threadName);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public void clearBoard() {
+    enqueue(new Event(CLEAR_BOARD));
+  }
+
+  @Override
+  public void gameStarted(Mode mode) {
+    Event event = new Event(GAME_STARTED);
+    event.mode = mode;
+    enqueue(event);
+  }
+
+  @Override
+  public void gameOver(Status status, Player player) {
+    Event event = new Event(GAME_OVER);
+    event.status = status;
+    event.player = player;
+    enqueue(event);
+  }
+
+  @Override
+  public void updateBoard(Player[][] board, Player player, int row, int column) {
+    synchronized (queue) {
+      Event last = queue.peekLast();
+      if (coalesceUpdates && last != null && last.type == UPDATE_BOARD) {
+        last.board = copyBoard(board, last.board);
+        last.player = player;
+        last.row = row;
+        last.column = column;
+        coalesced++;
+        return;
+      }
+    }
+    Event event = new Event(UPDATE_BOARD);
+    event.board = copyBoard(board, null);
+    event.player = player;
+    event.row = row;
+    event.column = column;
+    enqueue(event);
+  }
+
+  @Override
+  public void moveUndone(Player[][] board, Player player, int row, int column) {
+    Event event = new Event(MOVE_UNDONE);
+    event.board = copyBoard(board, null);
+    event.player = player;
+    event.row = row;
+    event.column = column;
+    enqueue(event);
+  }
+
+  @Override
+  public void alertNotYourTurn(Player player) {
+    Event event = new Event(NOT_YOUR_TURN);
+    event.player = player;
+    enqueue(event);
+  }
+
+  @Override
+  public void alertColumnIsFull(Player player) {
+    Event event = new Event(COLUMN_IS_FULL);
+    event.player = player;
+    enqueue(event);
+  }
+
+  @Override
+  public void disposeFrame() {
+    enqueue(new Event(DISPOSE_FRAME));
+  }
+
+  /**
+   * Waits until every event queued so far has been delivered.
+   *
+   * @param timeoutMillis  the longest time to wait in milliseconds, Long.MAX_VALUE to wait for
+   *                       as long as it takes.
+   * @return  true if the queue has been emptied, false if the time ran out first.
+   * @throws InterruptedException  if the waiting thread is interrupted.
+   */
+  public boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+    long now = System.currentTimeMillis();
+    long deadline = timeoutMillis > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeoutMillis;
+    synchronized (queue) {
+      while (!queue.isEmpty() || delivering) {
+        long left = deadline - System.currentTimeMillis();
+        if (left <= 0) {
+          return false;
+        }
+        queue.wait(left);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stops the delivery thread once the events already queued have been delivered. Events fired
+   * after this call are dropped, whether they go through a thread or an executor.
+   */
+  public void close() {
+    synchronized (queue) {
+      closed = true;
+      queue.notifyAll();
+    }
+  }
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  public ConnectFourListener getListener() {
+    return listener;
+  }
+
+  public int getQueueDepth() {
+    synchronized (queue) {
+      return queue.size();
+    }
+  }
+
+  public int getMaxQueueDepth() {
+    synchronized (queue) {
+      return maxQueueDepth;
+    }
+  }
+
+  public long getCoalesced() {
+    synchronized (queue) {
+      return coalesced;
+    }
+  }
+
+  public long getDelivered() {
+    return delivered;
+  }
+
+  /**
+   * Returns the average time from the firing of an event to the return of the listener.
+   *
+   * @return  the latency in nanoseconds, 0 if nothing has been delivered yet.
+   */
+  public long getAverageLatencyNanos() {
+    long count = delivered;
+    return count == 0 ? 0 : totalLatencyNanos / count;
+  }
+
+  public long getMaxLatencyNanos() {
+    return maxLatencyNanos;
+  }
+
+  private void enqueue(Event event) {
+    boolean schedule;
+    synchronized (queue) {
+      if (closed) {
+        return;
+      }
+      queue.addLast(event);
+      maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+      queue.notifyAll();
+      schedule = executor != null && !scheduled;
+      if (schedule) {
+        scheduled = true;
+      }
+    }
+    if (schedule) {
+      executor.execute(deliverBatch);
+    }
+  }
+
+  /**
+   * Runs on the executor, delivering the events queued so far and handing the executor the next
+   * batch if more events have been queued meanwhile.
+   */
+  private void deliverBatch() {
+    List<Event> batch;
+    synchronized (queue) {
+      batch = new ArrayList<Event>(queue);
+      queue.clear();
+      delivering = true;
+    }
+    deliver(batch);
+    boolean more;
+    synchronized (queue) {
+      delivering = false;
+      more = !queue.isEmpty();
+      scheduled = more;
+      queue.notifyAll();
+    }
+    if (more) {
+      executor.execute(deliverBatch);
+    }
+  }
+
+  /**
+   * Runs on the delivery thread, taking the queued events in batches until the listener is
+   * closed and the queue is empty.
+   */
+  private void deliverEvents() {
+    List<Event> batch = new ArrayList<Event>();
+    while (true) {
+      synchronized (queue) {
+        delivering = false;
+        queue.notifyAll();
+        while (queue.isEmpty() && !closed) {
+          try {
+            queue.wait();
+          }
+          catch (InterruptedException e) {
+            return;
+          }
+        }
+        if (queue.isEmpty()) {
+          return;
+        }
+        batch.addAll(queue);
+        queue.clear();
+        delivering = true;
+      }
+      deliver(batch);
+      batch.clear();
+    }
+  }
+
+  /**
+   * Delivers the events of a batch in order, recording their latency.
+   */
+  private void deliver(List<Event> batch) {
+    for (Event event : batch) {
+      try {
+        deliver(event);
+      }
+      catch (RuntimeException e) {
+        System.err.println("Listener " + listener + " has failed: " + e);
+      }
+      long latency = System.nanoTime() - event.firedAt;
+      totalLatencyNanos += latency;
+      if (latency > maxLatencyNanos) {
+        maxLatencyNanos = latency;
+      }
+      delivered++;
+    }
+  }
+
+  private void deliver(Event event) {
+    switch (event.type) {
+      case CLEAR_BOARD:
+        listener.clearBoard();
+        break;
+      case GAME_STARTED:
+        listener.gameStarted(event.mode);
+        break;
+      case GAME_OVER:
+        listener.gameOver(event.status, event.player);
+        break;
+      case UPDATE_BOARD:
+        listener.updateBoard(event.board, event.player, event.row, event.column);
+        break;
+      case MOVE_UNDONE:
+        listener.moveUndone(event.board, event.player, event.row, event.column);
+        break;
+      case NOT_YOUR_TURN:
+        listener.alertNotYourTurn(event.player);
+        break;
+      case COLUMN_IS_FULL:
+        listener.alertColumnIsFull(event.player);
+        break;
+      default:
+        listener.disposeFrame();
+        break;
+    }
+  }
+
+  /**
+   * Copies the cells of the board into the given array, which is allocated if it is missing or
+   * does not have the dimensions of the board.
+   */
+  private static Player[][] copyBoard(Player[][] board, Player[][] copy) {
+    if (board == null) {
+      return null;
+    }
+    if (copy == null || copy.length != board.length) {
+      copy = new Player[board.length][];
+    }
+    for (int row = 0 ; row < board.length ; row++) {
+      if (copy[row] == null || copy[row].length != board[row].length) {
+        copy[row] = board[row].clone();
+      }
+      else {
+        System.arraycopy(board[row], 0, copy[row], 0, board[row].length);
+      }
+    }
+    return copy;
+  }
+}
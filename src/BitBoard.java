@@ -0,0 +1,247 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is a packed representation of the Connect4 board. Every player's discs are kept in a
+ * single long where each column takes ROW_LENGTH+1 bits, the lowest bit being the bottom row
+ * and the extra bit on top acting as a sentinel so that shifted masks never bleed from one
+ * column into the next. Along with the masks, the height of each column is counted so that
+ * dropping a disc is a couple of bit operations instead of a walk over an array of enums.
+ * This is the fast path for the classic 6 by 7 board with four to connect, which the search of
+ * the AI is built on; other boards are kept in an ArrayBoard.
+ */
+public final class BitBoard implements Board {
+
+  static final int ROW_LENGTH = 6;
+  static final int COLUMN_LENGTH = 7;
+  static final int CONNECT_LENGTH = 4;
+  static final int COLUMN_HEIGHT = ROW_LENGTH + 1;
+  static final long BOTTOM_ROW = bottomRow();
+  static final long TOP_ROW = BOTTOM_ROW << (ROW_LENGTH - 1);
+  static final long BOARD_MASK = BOTTOM_ROW * ((1L << ROW_LENGTH) - 1);
+  private static final Player[] PLAYERS = Player.values();
+
+  private final long[] discs;
+  private final int[] heights;
+  private long occupied;
+
+  public BitBoard() {
+    discs = new long[PLAYERS.length];
+    heights = new int[COLUMN_LENGTH];
+  }
+
+  @Override
+  public int play(Player player, int column) {
+    int row = topAvailableRow(column);
+    long bit = bitAt(row, column);
+    discs[player.ordinal()] |= bit;
+    occupied |= bit;
+    heights[column]++;
+    return row;
+  }
+
+  @Override
+  public int undo(int column) {
+    int row = topAvailableRow(column) + 1;
+    long bit = bitAt(row, column);
+    for (int i = 0 ; i < discs.length ; i++) {
+      discs[i] &= ~bit;
+    }
+    occupied &= ~bit;
+    heights[column]--;
+    return row;
+  }
+
+  @Override
+  public boolean isWinningMove(Player player, int column) {
+    long bit = bitAt(topAvailableRow(column), column);
+    return connectsFour(discs[player.ordinal()] | bit, bit);
+  }
+
+  @Override
+  public boolean hasWon(Player player) {
+    return hasFour(discs[player.ordinal()]);
+  }
+
+  @Override
+  public boolean columnIsFull(int column) {
+    return (occupied & bitAt(0, column)) != 0;
+  }
+
+  @Override
+  public boolean isFull() {
+    return (occupied & TOP_ROW) == TOP_ROW;
+  }
+
+  @Override
+  public int topAvailableRow(int column) {
+    return (ROW_LENGTH - 1) - heights[column];
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0 ; i < discs.length ; i++) {
+      discs[i] = 0L;
+    }
+    for (int column = 0 ; column < COLUMN_LENGTH ; column++) {
+      heights[column] = 0;
+    }
+    occupied = 0L;
+  }
+
+  @Override
+  public Player getDiscAt(int row, int column) {
+    long bit = bitAt(row, column);
+    if ((occupied & bit) == 0) {
+      return Player.EMPTY;
+    }
+    for (Player player : PLAYERS) {
+      if ((discs[player.ordinal()] & bit) != 0) {
+        return player;
+      }
+    }
+    return Player.EMPTY;
+  }
+
+  @Override
+  public void setDiscAt(Player player, int row, int column) {
+    long bit = bitAt(row, column);
+    for (int i = 0 ; i < discs.length ; i++) {
+      discs[i] &= ~bit;
+    }
+    occupied &= ~bit;
+    if (player != Player.EMPTY) {
+      discs[player.ordinal()] |= bit;
+      occupied |= bit;
+    }
+    heights[column] = countHeight(column);
+  }
+
+  @Override
+  public void load(Player[][] cells) {
+    clear();
+    for (int row = 0 ; row < cells.length && row < ROW_LENGTH ; row++) {
+      for (int column = 0 ; column < cells[row].length && column < COLUMN_LENGTH ; column++) {
+        Player player = cells[row][column];
+        if (player != null && player != Player.EMPTY) {
+          long bit = bitAt(row, column);
+          discs[player.ordinal()] |= bit;
+          occupied |= bit;
+        }
+      }
+    }
+    for (int column = 0 ; column < COLUMN_LENGTH ; column++) {
+      heights[column] = countHeight(column);
+    }
+  }
+
+  @Override
+  public void copyInto(Player[][] cells) {
+    for (int row = 0 ; row < ROW_LENGTH ; row++) {
+      for (int column = 0 ; column < COLUMN_LENGTH ; column++) {
+        cells[row][column] = getDiscAt(row, column);
+      }
+    }
+  }
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  @Override
+  public int getRowLength() {
+    return ROW_LENGTH;
+  }
+
+  @Override
+  public int getColumnLength() {
+    return COLUMN_LENGTH;
+  }
+
+  @Override
+  public int getConnectLength() {
+    return CONNECT_LENGTH;
+  }
+
+  public long getDiscs(Player player) {
+    return discs[player.ordinal()];
+  }
+
+  public long getOccupied() {
+    return occupied;
+  }
+
+  public int getHeight(int column) {
+    return heights[column];
+  }
+
+  /**
+   * Returns the single bit representing the cell. Row 0 is the top of the board as in the
+   * Player[][] layout used by the views, while bit 0 of a column is its bottom cell.
+   *
+   * @param row     the index of the row.
+   * @param column  the index of the column.
+   * @return  the mask with only the bit of the cell set.
+   */
+  static long bitAt(int row, int column) {
+    return 1L << (column * COLUMN_HEIGHT + (ROW_LENGTH - 1 - row));
+  }
+
+  /**
+   * Checks whether the mask has four bits in a row in any of the four directions. Shifting by 1
+   * walks a column, by COLUMN_HEIGHT a row, and by COLUMN_HEIGHT-1 and COLUMN_HEIGHT+1 the two
+   * diagonals; the sentinel bit of each column keeps lines from wrapping around.
+   *
+   * @param mask  the discs of a player.
+   * @return  true if four discs are connected. False, otherwise.
+   */
+  static boolean hasFour(long mask) {
+    return lineStarts(mask, 1) != 0 || lineStarts(mask, COLUMN_HEIGHT) != 0
+        || lineStarts(mask, COLUMN_HEIGHT - 1) != 0 || lineStarts(mask, COLUMN_HEIGHT + 1) != 0;
+  }
+
+  /**
+   * Checks whether the mask has four bits in a row going through the given bit.
+   *
+   * @param mask  the discs of a player, including the bit.
+   * @param bit   the single bit of the disc that has just been placed.
+   * @return  true if the disc completes four in a row. False, otherwise.
+   */
+  static boolean connectsFour(long mask, long bit) {
+    return connectsFour(mask, bit, 1) || connectsFour(mask, bit, COLUMN_HEIGHT)
+        || connectsFour(mask, bit, COLUMN_HEIGHT - 1) || connectsFour(mask, bit, COLUMN_HEIGHT + 1);
+  }
+
+  private static boolean connectsFour(long mask, long bit, int shift) {
+    long covered = bit | (bit >>> shift) | (bit >>> (2 * shift)) | (bit >>> (3 * shift));
+    return (lineStarts(mask, shift) & covered) != 0;
+  }
+
+  /**
+   * Returns the lowest bit of every four bits in a row along the direction of the shift.
+   */
+  private static long lineStarts(long mask, int shift) {
+    long pairs = mask & (mask >>> shift);
+    return pairs & (pairs >>> (2 * shift));
+  }
+
+  /**
+   * Counts the discs stacked from the bottom of the column without a gap.
+   */
+  private int countHeight(int column) {
+    int height = 0;
+    while (height < ROW_LENGTH
+        && (occupied & bitAt(ROW_LENGTH - 1 - height, column)) != 0) {
+      height++;
+    }
+    return height;
+  }
+
+  private static long bottomRow() {
+    long mask = 0L;
+    for (int column = 0 ; column < COLUMN_LENGTH ; column++) {
+      mask |= 1L << (column * COLUMN_HEIGHT);
+    }
+    return mask;
+  }
+}
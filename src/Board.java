@@ -0,0 +1,130 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is an interface for the board kept by the model. Cells are indexed by [row][column] as
+ * in the Player[][] layout used by the views, row 0 being the top of the board.
+ * The classic 6 by 7 board with four to connect is kept in a BitBoard; boards of any other size
+ * or length of line to connect are kept in an ArrayBoard. Use of() to get the right one.
+ */
+public interface Board {
+
+  /**
+   * Drops the disc of the player onto the given column. The column must not be full.
+   *
+   * @param player  the player who is placing the disc.
+   * @param column  the column that the player has chosen to place the disc.
+   * @return  the index of the row the disc has landed on.
+   */
+  int play(Player player, int column);
+
+  /**
+   * Takes the top disc off the given column. The column must not be empty.
+   *
+   * @param column  the column whose top disc is removed.
+   * @return  the index of the row the disc has been taken from.
+   */
+  int undo(int column);
+
+  /**
+   * Checks whether dropping the disc of the player onto the column would connect a line of the
+   * player's discs. Only the lines going through the new disc are considered. The column must
+   * not be full.
+   *
+   * @param player  the player who would place the disc.
+   * @param column  the column that the player would place the disc onto.
+   * @return  true if the move wins the game. False, otherwise.
+   */
+  boolean isWinningMove(Player player, int column);
+
+  /**
+   * Checks whether the player has a connected line anywhere on the board.
+   *
+   * @param player  the player with the potential win.
+   * @return  true if the player has won. False, otherwise.
+   */
+  boolean hasWon(Player player);
+
+  /**
+   * Checks if the top cell of the given column is occupied.
+   *
+   * @param column  index of the column of interest.
+   * @return  true if the column is full. False, otherwise.
+   */
+  boolean columnIsFull(int column);
+
+  /**
+   * Checks whether the top cell of every column has been occupied.
+   *
+   * @return  true if there is no column left to play. False, otherwise.
+   */
+  boolean isFull();
+
+  /**
+   * Returns the index of the lowest empty row of the given column.
+   *
+   * @param column  the column of interest.
+   * @return  index of the top available row, -1 if the column has no empty cell left above
+   *          its stack of discs.
+   */
+  int topAvailableRow(int column);
+
+  /**
+   * Empties every cell of the board.
+   */
+  void clear();
+
+  Player getDiscAt(int row, int column);
+
+  /**
+   * Places (or removes, if the player is EMPTY) a disc at an arbitrary cell, which does not
+   * have to be the top of the column.
+   *
+   * @param player  the player occupying the cell, or EMPTY to clear it.
+   * @param row     the index of the row.
+   * @param column  the index of the column.
+   */
+  void setDiscAt(Player player, int row, int column);
+
+  /**
+   * Replaces the content of this board with the cells of the given array. Cells outside of
+   * the array are left empty, cells outside of the board are ignored.
+   *
+   * @param cells  the board to be copied, indexed by [row][column].
+   */
+  void load(Player[][] cells);
+
+  /**
+   * Writes the content of this board into the given array.
+   *
+   * @param cells  the array to be filled, indexed by [row][column].
+   */
+  void copyInto(Player[][] cells);
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  int getRowLength();
+
+  int getColumnLength();
+
+  int getConnectLength();
+
+  /**
+   * Creates an empty board of the given dimensions, packed into a BitBoard if they are those of
+   * the classic game.
+   *
+   * @param rows     the number of rows, at least 1.
+   * @param columns  the number of columns, at least 1.
+   * @param connect  the number of discs to connect to win, at least 1.
+   * @return  the board.
+   */
+  static Board of(int rows, int columns, int connect) {
+    if (rows == BitBoard.ROW_LENGTH && columns == BitBoard.COLUMN_LENGTH
+        && connect == BitBoard.CONNECT_LENGTH) {
+      return new BitBoard();
+    }
+    return new ArrayBoard(rows, columns, connect);
+  }
+}
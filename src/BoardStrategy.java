@@ -0,0 +1,21 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is an interface for the strategies of the AI that can play on a board of any size, not
+ * only on the packed position of the classic board. The model hands such a strategy its own
+ * board when the board is not the classic one, so the strategy must leave the board as it
+ * found it, playing on copies of its own.
+ */
+public interface BoardStrategy extends MoveStrategy {
+
+  /**
+   * Chooses the column to be played by the player to move.
+   *
+   * @param board     the board of the game, which is not changed. At least one column is not
+   *                  full.
+   * @param player    the player to move.
+   * @param opponent  the other player.
+   * @return  the index of a column that is not full.
+   */
+  int chooseColumn(Board board, Player player, Player opponent);
+}
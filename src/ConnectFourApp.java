@@ -1,4 +1,9 @@
 package edu.nyu.pqs.connectfour;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 /**
  * This is a class that contains the main method to run the Connect4 game.
  * Once the game is started, the user can choose between single player mode,
@@ -9,16 +14,73 @@ package edu.nyu.pqs.connectfour;
  */
 public class ConnectFourApp {
   
+  /**
+   * The system property naming an opening book file for the AI, as written by
+   * OpeningBookGenerator.
+   */
+  static final String OPENING_BOOK_PROPERTY = "connectfour.openingBook";
+  
+  /**
+   * The system property naming an endgame database file for the AI, as written by
+   * EndgameDatabaseGenerator.
+   */
+  static final String ENDGAME_DATABASE_PROPERTY = "connectfour.endgameDatabase";
+  
   /**
    * Creates a model and two instances of views that represent each player and are
    * notified of the actions in the model in order to update the graphical components of the game.
+   * The frame of the second player is opened and closed with the mode of the game.
    */
   private void startApp() {
     ConnectFourModel model = new ConnectFourModel(); 
+    useOpeningBook(model);
+    useEndgameDatabase(model);
     Player player1 = Player.ONE;
     Player player2 = Player.TWO;    
     ConnectFourView.getInstance(model, player1);
-    ConnectFourView.getInstance(model, player2);
+    new ConnectFourFrameManager(model, ConnectFourView.getInstance(model, player2).getListener());
+  }
+  
+  /**
+   * Makes the AI of the model consult the opening book named by the system property, if any,
+   * before it searches.
+   * 
+   * @param model  the model whose AI will use the book.
+   */
+  private void useOpeningBook(ConnectFourModel model) {
+    String fileName = System.getProperty(OPENING_BOOK_PROPERTY);
+    if (fileName == null) {
+      return;
+    }
+    Path file = Paths.get(fileName);
+    try {
+      OpeningBook book = OpeningBook.open(file);
+      model.setAIStrategy(new OpeningBookStrategy(book, model.getAIStrategy()));
+    }
+    catch (IOException e) {
+      System.err.println("Could not open the opening book " + file + ": " + e.getMessage());
+    }
+  }
+  
+  /**
+   * Makes the AI of the model consult the endgame database named by the system property, if
+   * any, before it searches in the late game.
+   * 
+   * @param model  the model whose AI will use the database.
+   */
+  private void useEndgameDatabase(ConnectFourModel model) {
+    String fileName = System.getProperty(ENDGAME_DATABASE_PROPERTY);
+    if (fileName == null) {
+      return;
+    }
+    Path file = Paths.get(fileName);
+    try {
+      EndgameDatabase database = EndgameDatabase.open(file);
+      model.setAIStrategy(new EndgameDatabaseStrategy(database, model.getAIStrategy()));
+    }
+    catch (IOException e) {
+      System.err.println("Could not open the endgame database " + file + ": " + e.getMessage());
+    }
   }
   
   public static void main(String[] args) {
@@ -0,0 +1,84 @@
+package edu.nyu.pqs.connectfour;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * This is a listener that keeps the number of frames displayed to the user in line with the
+ * mode of the game, so the model does not have to know about any graphical component.
+ * When a single-player game is started, the frame of the second player is closed and its view
+ * unsubscribes from the model. When a multi-player game is started, the frame is opened again.
+ *
+ * The frames are changed once the model has finished notifying its listeners of the start of
+ * the game, so the list of listeners is never changed while the model is going through it.
+ */
+public class ConnectFourFrameManager implements ConnectFourListener {
+
+  private final ConnectFourModel model;
+  private ConnectFourListener secondView;
+
+  /**
+   * Creates the manager of the frame of the second player and registers it to the model.
+   *
+   * @param model       the model the views are registered to.
+   * @param secondView  the listener the view of the second player is registered with, or null
+   *                    if its frame is not displayed.
+   */
+  public ConnectFourFrameManager(ConnectFourModel model, ConnectFourListener secondView) {
+    this.model = model;
+    this.secondView = secondView;
+    model.register(this);
+  }
+
+  @Override
+  public void gameStarted(final Mode mode) {
+    if (mode == Mode.SINGLE && secondView != null) {
+      final ConnectFourListener closedView = secondView;
+      secondView = null;
+      SwingUtilities.invokeLater(new Runnable() {
+        @Override
+        public void run() {
+          model.unregister(closedView);
+          closedView.disposeFrame();
+        }
+      });
+    }
+    else if (mode == Mode.MULTI && secondView == null) {
+      SwingUtilities.invokeLater(new Runnable() {
+        @Override
+        public void run() {
+          secondView = ConnectFourView.getInstance(model, Player.TWO).getListener();
+          secondView.clearBoard();
+          secondView.gameStarted(mode);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void clearBoard() {
+  }
+
+  @Override
+  public void gameOver(Status status, Player player) {
+  }
+
+  @Override
+  public void updateBoard(Player[][] board, Player player, int row, int column) {
+  }
+
+  @Override
+  public void moveUndone(Player[][] board, Player player, int row, int column) {
+  }
+
+  @Override
+  public void alertNotYourTurn(Player player) {
+  }
+
+  @Override
+  public void alertColumnIsFull(Player player) {
+  }
+
+  @Override
+  public void disposeFrame() {
+  }
+}
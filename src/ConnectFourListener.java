@@ -39,6 +39,17 @@ public interface ConnectFourListener {
    */
   void updateBoard(Player[][] board, Player player, int row, int column);
   
+  /**
+   * Updates the appearance of the board by emptying the cell of a move that has been taken
+   * back, and enables the buttons again if the move had ended the game.
+   * 
+   * @param board   the current board that keeps the information of all cells in the board.
+   * @param player  the player whose move has been taken back.
+   * @param row     the row index of the cell that is empty again.
+   * @param column  the column index of the cell that is empty again.
+   */
+  void moveUndone(Player[][] board, Player player, int row, int column);
+  
   /**
    * Alerts the user that it is not his or her turn to play.
    * 
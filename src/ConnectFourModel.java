@@ -1,100 +1,197 @@
 package edu.nyu.pqs.connectfour;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This is the model for Connect4 game that contains all the logics of the actual game. 
  * It notifies the view of its change in the state.
  * 
+ * The model never touches any graphical component, so it can be run headless: a game is
+ * started with startGame(), moves are applied with putDisc(), taken back with undo() and played
+ * again with redo(), and the result is read with getStatus(). The Swing views are only
+ * listeners of the model, and the frames they live in are managed by the application (see
+ * ConnectFourFrameManager).
+ * The board has 6 rows and 7 columns with four discs to connect unless other dimensions are
+ * given to the constructor. The classic board is kept in a packed BitBoard that the search of
+ * the AI runs on; any other board is kept in an ArrayBoard.
+ * Every model keeps its own board and listeners, so a process may run many games at the same
+ * time, as long as each model is only used by one thread at a time. Listeners, however, may
+ * be registered and unregistered by any thread, even while an event is being fired: the list
+ * is copied on every change, so firing an event goes through a snapshot without any lock.
+ * The default AI of every model searches with one lock-free transposition table shared by all
+ * of them, so the memory taken by the AI does not grow with the number of games.
+ * 
  * @author  Ssangwook Hong
  * @date    Apr 24 2016
  */
 public class ConnectFourModel {
 
-  private static List<ConnectFourListener> listeners;
+  /**
+   * This class holds the transposition table of the default AI, created along with the first
+   * model and shared by every model after it.
+   */
+  private static class SharedAITable {
+    static final SharedTranspositionTable TABLE =
+        new SharedTranspositionTable(AI_TABLE_MEGABYTES);
+  }
+
+  private final List<ConnectFourListener> listeners;
   private boolean AI;
-  private final int ROW_LENGTH = 6;
-  private final int COLUMN_LENGTH = 7;
-  private Player[][] board;
+  private Mode mode;
+  private final int ROW_LENGTH;
+  private final int COLUMN_LENGTH;
+  private final int CONNECT_LENGTH;
+  private static final Player[] PLAYERS = Player.values();
+  private static final int AI_TABLE_MEGABYTES = 16;
+  private final Board board;
+  private Player[][] boardView;
+  private boolean boardViewIsStale;
   private Player previousPlayer;
   private Status status;
-  private static int frameNum;
+  private MoveStrategy aiStrategy;
+  private BoardStrategy boardStrategy;
+  private int[] moves;
+  private int moveCount;
+  private int redoLimit;
+  private long startTime;
+  private long endTime;
   
   public ConnectFourModel() {
-    board = new Player[ROW_LENGTH][COLUMN_LENGTH];
-    listeners = new ArrayList<ConnectFourListener>();
+    this(BitBoard.ROW_LENGTH, BitBoard.COLUMN_LENGTH, BitBoard.CONNECT_LENGTH);
+  }
+  
+  /**
+   * Creates the model of a game on a board of the given dimensions.
+   * 
+   * @param rows     the number of rows, at least 1.
+   * @param columns  the number of columns, at least 1.
+   * @param connect  the number of discs a player has to connect to win, at least 1.
+   */
+  public ConnectFourModel(int rows, int columns, int connect) {
+    board = Board.of(rows, columns, connect);
+    ROW_LENGTH = rows;
+    COLUMN_LENGTH = columns;
+    CONNECT_LENGTH = connect;
+    moves = new int[ROW_LENGTH * COLUMN_LENGTH];
+    aiStrategy = new NegamaxStrategy.Builder().sharedTable(SharedAITable.TABLE).build();
+    listeners = new CopyOnWriteArrayList<ConnectFourListener>();
     clearBoard();
-    frameNum = 2;
   }
   
   /**
    * Starts the game by clearing the board, initializing the values for number of discs placed,
    * AI flag, turn flag which keeps track of the correct user to play this turn. 
-   * Notifies the view that the game has started with corresponding mode and adjust the number
-   * of frames being displayed to the user.
+   * Notifies the views that the game has started with corresponding mode. Which frames are
+   * displayed to the user is left to the views.
    * 
    * @param mode  the state of the mode either in single-player or multi-player mode.
    */
   public void startGame(Mode mode) {
-    AI = false;
+    this.mode = mode;
+    AI = mode == Mode.SINGLE;
     setPreviousTurn(Player.EMPTY);
-    List<ConnectFourListener> listeners = getListeners();
-    if (mode == Mode.SINGLE) {
-      AI = true;
-      if (frameNum > 1) {
-        ConnectFourListener secondListener = listeners.get(1);
-        unregister(secondListener);
-        secondListener.disposeFrame();
-        frameNum--;
-      }
-      clearBoard();
-    }
-    else {
-      if (frameNum < 2) {                
-        ConnectFourView.getInstance(this, Player.TWO);
-        frameNum++;
-      }
-      clearBoard();
-    }
+    clearBoard();
+    startTime = System.currentTimeMillis();
     fireGameStarted(mode);
   }
   
   
+  /**
+   * Starts a game to be replayed from its record, as startGame() does, except that the AI does
+   * not reply to the moves of the player in single-player mode: its recorded moves are put with
+   * putDisc() like those of the player.
+   * 
+   * @param mode  the mode the recorded game was played in.
+   */
+  public void startReplay(Mode mode) {
+    startGame(mode);
+    AI = false;
+  }
+  
   /**
    * Puts the disc to the top available row of the column desired by the player.
-   * Checks whether it is the player's turn and also whether the column that the player
-   * has chosen is already filled or not.
+   * Checks whether the game is still in progress, whether it is the player's turn and also
+   * whether the column that the player has chosen is already filled or not.
    * 
    * @param player  the player who is placing the disc.
    * @param column  the column that the player has chosen to place the disc.
-   * @return  true if a new disc has been put, false if it has failed.
+   * @return  true if a new disc has been put, false if it has failed, including when the game
+   *          has already been won or drawn.
    */
   public boolean putDisc(Player player, int column) {
-    if (player == getPreviousTurn()) {
+    if (status != Status.IN_PROGRESS) {
+      return false;
+    }
+    else if (player == getPreviousTurn()) {
       fireNotYourTurn(player);   
       return false;
     }   
     else {
-      for (int row = ROW_LENGTH-1 ; row >= 0 ; row--) {
-        if (columnIsFull(column)) {
-          fireColumnIsFull(player);
-          return false;
-        }
-        if (board[row][column] == Player.EMPTY) {
-            setDiscAt(player, row, column);
-            fireUpdateBoard(player, row, column);
-            checkStatus(player);
-            setPreviousTurn(player);
-            if (AI && !playerWins(player)) {
-              smartColumn();
-            }     
-            return true;
-        }      
+      if (columnIsFull(column)) {
+        fireColumnIsFull(player);
+        return false;
       }
+      boolean winningMove = isWinningMove(player, column);
+      int row = playDisc(player, column);
+      fireUpdateBoard(player, row, column);
+      updateStatus(player, winningMove);
+      setPreviousTurn(player);
+      if (AI && !winningMove) {
+        smartColumn();
+      }     
+      return true;
     }
-    return false;
+  }
+  
+  /**
+   * Takes back the last move played, whether by a player or by the AI, and notifies the views
+   * through moveUndone(). It is the turn of the player who made the move again, and a game
+   * that the move had ended is in progress again. The move stays on the history until another
+   * move is played, so it can be played again with redo(). In single-player mode, taking back
+   * the move of the player means calling undo() twice, once for the reply of the AI.
+   * 
+   * @return  true if a move has been taken back, false if no move has been played since the
+   *          board was last cleared or replaced.
+   */
+  public boolean undo() {
+    if (moveCount == 0) {
+      return false;
+    }
+    int move = moves[--moveCount];
+    int column = move >>> 2;
+    int row = board.undo(column);
+    if (boardView != null && !boardViewIsStale) {
+      boardView[row][column] = Player.EMPTY;
+    }
+    status = Status.IN_PROGRESS;
+    setPreviousTurn(moveCount == 0 ? Player.EMPTY : PLAYERS[moves[moveCount - 1] & 0x3]);
+    fireMoveUndone(PLAYERS[move & 0x3], row, column);
+    return true;
+  }
+  
+  /**
+   * Plays again the last move taken back by undo(), and notifies the views as putDisc() does,
+   * including the end of the game if the move ends it. The AI does not reply to the move.
+   * 
+   * @return  true if a move has been played again, false if there is no move to play again,
+   *          either because none has been taken back or because another one has been played
+   *          since.
+   */
+  public boolean redo() {
+    if (moveCount == redoLimit) {
+      return false;
+    }
+    int move = moves[moveCount];
+    Player player = PLAYERS[move & 0x3];
+    int column = move >>> 2;
+    boolean winningMove = isWinningMove(player, column);
+    int row = placeDisc(player, column);
+    moveCount++;
+    fireUpdateBoard(player, row, column);
+    updateStatus(player, winningMove);
+    setPreviousTurn(player);
+    return true;
   }
   
   /**
@@ -104,7 +201,19 @@ public class ConnectFourModel {
    * @return  true if the column is full. False, otherwise.
    */
   public boolean columnIsFull(int column) {
-    return (board[0][column] != Player.EMPTY);
+    return board.columnIsFull(column);
+  }
+  
+  /**
+   * Checks whether putting the disc of the player onto the column would win the game.
+   * Only the lines going through the disc that would be placed are examined.
+   * 
+   * @param player  the player who would place the disc.
+   * @param column  the column that the player would choose.
+   * @return  true if the move connects four discs. False, otherwise, or if the column is full.
+   */
+  public boolean isWinningMove(Player player, int column) {
+    return !columnIsFull(column) && board.isWinningMove(player, column);
   }
   
   /**
@@ -115,56 +224,41 @@ public class ConnectFourModel {
    *          -1 if the column is full and no available index could be found.
    */
   public int topAvailableRow(int column) {
-    int topRowIndex = -1;    
-    for (int row = ROW_LENGTH-1 ; row >= 0 ; row--) {
-      if (board[row][column] == Player.EMPTY) {
-        return row;
-      }
-    }   
-    return topRowIndex;
+    return board.topAvailableRow(column);
   }
 
   /**
    * Plays the move of an AI in single-player mode.
-   * Places discs onto random columns if a column has not already been filled.
-   * If the next move by an AI can result in a win, play that move.
+   * The column is chosen by the AI strategy of the model on a copy of the board, so the
+   * strategy never touches the board that the views are showing. On any other board than the
+   * classic one, a BoardStrategy is handed the board itself, and the AI of any other strategy
+   * plays the move of a HeuristicStrategy, which searches a few plies ahead and scores the
+   * positions it reaches by their threats.
+   * Nothing is played if the board is already full.
    * 
    */
   public void smartColumn() {
     setPreviousTurn(Player.AI);
-    boolean hasPlayedMove = false;
-    
-    for (int column = 0 ; column <= COLUMN_LENGTH-1 ; column++) {
-      int topRow = topAvailableRow(column);
-      if (topRow == -1)
-        continue;
-      if (board[topRow][column] == Player.EMPTY) {
-        setDiscAt(Player.AI, topRow, column);
-        if (playerWins(Player.AI)) {
-          fireUpdateBoard(Player.AI, topRow, column);
-          checkStatus(Player.AI);
-          hasPlayedMove = true;    
-          break;
-        }
-        else {
-          setDiscAt(Player.EMPTY, topRow, column);     
-        }
-      }
+    if (board.isFull()) {
+      return;
     }
-    while (hasPlayedMove == false) {
-      int column = new Random().nextInt(COLUMN_LENGTH);
-      if (board[0][column] == Player.EMPTY) {
-        for (int row = ROW_LENGTH-1 ; row >= 0 ; row--) {
-          if (board[row][column] == Player.EMPTY) {
-            setDiscAt(Player.AI, row, column);
-            hasPlayedMove = true;
-            fireUpdateBoard(Player.AI, row, column);
-            checkStatus(Player.AI);
-            break;
-          }
-        }
+    int column;
+    if (board instanceof BitBoard) {
+      column = aiStrategy.chooseColumn(Position.of((BitBoard) board, Player.AI));
+    }
+    else if (aiStrategy instanceof BoardStrategy) {
+      column = ((BoardStrategy) aiStrategy).chooseColumn(board, Player.AI, Player.ONE);
+    }
+    else {
+      if (boardStrategy == null) {
+        boardStrategy = new HeuristicStrategy.Builder().build();
       }
-    }    
+      column = boardStrategy.chooseColumn(board, Player.AI, Player.ONE);
+    }
+    boolean winningMove = isWinningMove(Player.AI, column);
+    int row = playDisc(Player.AI, column);
+    fireUpdateBoard(Player.AI, row, column);
+    updateStatus(Player.AI, winningMove);
   }
 
   /**
@@ -175,12 +269,25 @@ public class ConnectFourModel {
    * @param player  the player who has just played the move.
    */
   public void checkStatus(Player player) {
-    if (playerWins(player)) {
+    updateStatus(player, playerWins(player));
+  }
+  
+  /**
+   * Sets the value of the status once the result of the move is known, so that a move whose
+   * win has already been detected through isWinningMove() does not scan the board again.
+   * 
+   * @param player  the player who has just played the move.
+   * @param wins    whether the move has won the game.
+   */
+  private void updateStatus(Player player, boolean wins) {
+    if (wins) {
       status = Status.WIN;      
+      endTime = System.currentTimeMillis();
       fireGameOver(status, player);
     }    
     else if (playerTies(player)) {
       status = Status.DRAWN;
+      endTime = System.currentTimeMillis();
       fireGameOver(status, player);
     }
   }
@@ -191,11 +298,11 @@ public class ConnectFourModel {
    * 
    */
   public void clearBoard() {
-    for (int row = ROW_LENGTH-1 ; row >= 0 ; row--) {
-      for (int column = COLUMN_LENGTH-1 ; column >= 0 ; column--) {
-        board[row][column] = Player.EMPTY;
-      }
-    }
+    board.clear();
+    boardViewIsStale = true;
+    moveCount = 0;
+    redoLimit = 0;
+    status = Status.IN_PROGRESS;
     fireClearBoard();
   }
   
@@ -204,17 +311,10 @@ public class ConnectFourModel {
    * horizontal, and diagonal lines.
    * 
    * @param player  the player with the potential win.
-   * @return true if the player has won by connecting 4 lines. False, otherwise.
+   * @return true if the player has won by connecting CONNECT_LENGTH discs. False, otherwise.
    */
   public boolean playerWins(Player player) {
-    for (int row = 0 ; row <= ROW_LENGTH-1 ; row++) {
-      for (int column = 0 ; column <= COLUMN_LENGTH-1 ; column++) {
-        if (checkRow(player, row, column) || checkColumn(player, row, column)
-            || checkDiagonal(player, row, column))
-          return true;
-      }
-    }
-    return false;
+    return board.hasWon(player);
   }
   
   /**
@@ -226,160 +326,161 @@ public class ConnectFourModel {
    * @return  true if game has been tied. False, otherwise.
    */
   public boolean playerTies(Player player) {
-    boolean allColumnsAreFull = true;
-    for (int column = 0 ; column < COLUMN_LENGTH ; column++) {
-      if (!columnIsFull(column)) {
-        allColumnsAreFull = false;
-      }
-    }
-    return (allColumnsAreFull);
+    return board.isFull();
   }
   
   /**
-   * Checks whether 4 consecutive rows have been occupied by the discs of a same player. 
+   * Checks whether CONNECT_LENGTH consecutive rows have been occupied by the discs of a same
+   * player. 
    * 
    * @param player  the player with the disc.
-   * @param row     the row of the cell from where 4 consecutive rows will be counted.
-   * @param column  the column of the cell from where 4 consecutive columns will be counted.
-   * @return  true if there are 4 consecutive discs by the same player in a row. False, otherwise.
+   * @param row     the row of the cell from where consecutive rows will be counted.
+   * @param column  the column of the cell from where consecutive columns will be counted.
+   * @return  true if there are CONNECT_LENGTH consecutive discs by the same player in a row.
+   *          False, otherwise.
    */
   public boolean checkRow(Player player, int row, int column) {
-    if (board[row][column] != player) {
+    if (getDiscAt(row, column) != player) {
       return false;      
     }
     
     int numConsecutiveRow = 1;
     int numRowBelowToChk = (ROW_LENGTH-1)-row;
-    if (numRowBelowToChk > 4) {
-      numRowBelowToChk = 4;
+    if (numRowBelowToChk > CONNECT_LENGTH) {
+      numRowBelowToChk = CONNECT_LENGTH;
     }
-    int numRowAboveToChk = 4-numRowBelowToChk;
+    int numRowAboveToChk = CONNECT_LENGTH-numRowBelowToChk;
     
     for (int i = 1 ; i < numRowBelowToChk ; i++) {
-      if (board[row+i][column] == player)
+      if (getDiscAt(row+i, column) == player)
         numConsecutiveRow++;
     }
     for (int i = 1 ; i < numRowAboveToChk ; i++) {
-      if (board[row-i][column] == player)
+      if (getDiscAt(row-i, column) == player)
         numConsecutiveRow++;
     }
     
-    if (numConsecutiveRow == 4)
+    if (numConsecutiveRow == CONNECT_LENGTH)
       return true;
     else
       return false;
   }
   
   /**
-   * Checks whether 4 consecutive columns have been occupied by the discs of a same player. 
+   * Checks whether CONNECT_LENGTH consecutive columns have been occupied by the discs of a same
+   * player. 
    * 
    * @param player  the player with the disc.
-   * @param row     the row of the cell from where 4 consecutive rows will be counted.
-   * @param column  the column of the cell from where 4 consecutive columns will be counted.
-   * @return  true if there are 4 consecutive discs by the same player in a column. 
+   * @param row     the row of the cell from where consecutive rows will be counted.
+   * @param column  the column of the cell from where consecutive columns will be counted.
+   * @return  true if there are CONNECT_LENGTH consecutive discs by the same player in a column. 
    *          false, otherwise.
    */
   public boolean checkColumn(Player player, int row, int column) {
-    if (board[row][column] != player) {
+    if (getDiscAt(row, column) != player) {
       return false;      
     }
     int numConsecutiveColumn = 1;
     int numColumnRightToChk = (COLUMN_LENGTH-1)-column;
-    if (numColumnRightToChk > 3) {
-      numColumnRightToChk = 3;
+    if (numColumnRightToChk > (CONNECT_LENGTH-1)) {
+      numColumnRightToChk = (CONNECT_LENGTH-1);
     }
     
-    int numColumnLeftToChk = 3-numColumnRightToChk;
+    int numColumnLeftToChk = (CONNECT_LENGTH-1)-numColumnRightToChk;
     for (int i = 1 ; i <= numColumnRightToChk ; i++) {
-      if (board[row][column+i] == player)
+      if (getDiscAt(row, column+i) == player)
         numConsecutiveColumn++;
     }
     for (int i = 1 ; i <= numColumnLeftToChk ; i++) {
-      if (board[row][column-i] == player)
+      if (getDiscAt(row, column-i) == player)
         numConsecutiveColumn++;
     }
-    if (numConsecutiveColumn == 4)
+    if (numConsecutiveColumn == CONNECT_LENGTH)
       return true;
     else
       return false;
   }
   
   /**
-   * Checks whether 4 consecutive diagonal lines have been occupied by the discs of a same player.
+   * Checks whether CONNECT_LENGTH consecutive diagonal lines have been occupied by the discs of
+   * a same player.
    * 
    * @param player  the player with the disc.
-   * @param row     the row of the cell from where 4 consecutive rows will be counted.
-   * @param column  the column of the cell from where 4 consecutive columns will be counted.
-   * @return  true if there are 4 consecutive discs by the same player in a diagonal line. 
+   * @param row     the row of the cell from where consecutive rows will be counted.
+   * @param column  the column of the cell from where consecutive columns will be counted.
+   * @return  true if there are CONNECT_LENGTH consecutive discs by the same player in a
+   *          diagonal line. 
    *          false, otherwise.
    */
   public boolean checkDiagonal(Player player, int row, int column) {
-    if (board[row][column] != player)
+    if (getDiscAt(row, column) != player)
       return false; 
     int numConsecutiveDiag = 0;
-    int rowUpLeft = row-3;
-    int columnUpLeft = column-3;    
+    int rowUpLeft = row-(CONNECT_LENGTH-1);
+    int columnUpLeft = column-(CONNECT_LENGTH-1);    
     if (rowUpLeft >= 0 && columnUpLeft >= 0) {
-      for (int i = 0 ; i < 4 ; i++) {
-        if (board[row-i][column-i] == player) {
+      for (int i = 0 ; i < CONNECT_LENGTH ; i++) {
+        if (getDiscAt(row-i, column-i) == player) {
           numConsecutiveDiag++;
         }
       }
     }
     
-    if (numConsecutiveDiag == 4) {
+    if (numConsecutiveDiag == CONNECT_LENGTH) {
       return true;      
     }
     numConsecutiveDiag = 0;
 
-    int rowUpRight = row-3;
-    int columnUpRight = column+3;
-    if (rowUpRight >= 0 && columnUpRight <= 6) {
-      for (int i = 0 ; i < 4 ; i++) {
-        if (board[row-i][column+i] == player) {
+    int rowUpRight = row-(CONNECT_LENGTH-1);
+    int columnUpRight = column+(CONNECT_LENGTH-1);
+    if (rowUpRight >= 0 && columnUpRight <= COLUMN_LENGTH-1) {
+      for (int i = 0 ; i < CONNECT_LENGTH ; i++) {
+        if (getDiscAt(row-i, column+i) == player) {
           numConsecutiveDiag++;
         }
       }
     }
     
-    if (numConsecutiveDiag == 4) {
+    if (numConsecutiveDiag == CONNECT_LENGTH) {
       return true;      
     }
     numConsecutiveDiag = 0;
 
-    int rowDownRight = row+3;
-    int columnDownRight = column+3;
-    if (rowDownRight <= 5 && columnDownRight <= 6) {
-      for (int i = 0 ; i < 4 ; i++) {
-        if (board[row+i][column+i] == player) {
+    int rowDownRight = row+(CONNECT_LENGTH-1);
+    int columnDownRight = column+(CONNECT_LENGTH-1);
+    if (rowDownRight <= ROW_LENGTH-1 && columnDownRight <= COLUMN_LENGTH-1) {
+      for (int i = 0 ; i < CONNECT_LENGTH ; i++) {
+        if (getDiscAt(row+i, column+i) == player) {
           numConsecutiveDiag++;
         }
       }
     }
     
-    if (numConsecutiveDiag == 4) {
+    if (numConsecutiveDiag == CONNECT_LENGTH) {
       return true;      
     }
     numConsecutiveDiag = 0;
     
-    int rowDownLeft = row+3;
-    int columnDownLeft = column-3;
-    if (rowDownLeft <= 5 && columnDownLeft >= 0) {
-      for (int i = 0 ; i < 4 ; i++) {
-        if (board[row+i][column-i] == player) {
+    int rowDownLeft = row+(CONNECT_LENGTH-1);
+    int columnDownLeft = column-(CONNECT_LENGTH-1);
+    if (rowDownLeft <= ROW_LENGTH-1 && columnDownLeft >= 0) {
+      for (int i = 0 ; i < CONNECT_LENGTH ; i++) {
+        if (getDiscAt(row+i, column-i) == player) {
           numConsecutiveDiag++;
         }
       }
     }
     
-    if (numConsecutiveDiag == 4) {
+    if (numConsecutiveDiag == CONNECT_LENGTH) {
       return true;      
     }
     return false;
   }
   
   /**
-   * Register the listener so the listener will get notified of the model.
+   * Register the listener so the listener will get notified of the model. It may be called
+   * from any thread; a listener registered while an event is being fired is notified from the
+   * next event on.
    * 
    * @param listener  listener that is subscribing to this model.
    */
@@ -409,12 +510,65 @@ public class ConnectFourModel {
     return COLUMN_LENGTH;
   }
 
+  public int getConnectLength() {
+    return CONNECT_LENGTH;
+  }
+
   public Status getStatus() {
     return status;
   }
   
+  public int getMoveCount() {
+    return moveCount;
+  }
+  
+  /**
+   * Returns the columns played since the board was last cleared or replaced, in order.
+   * 
+   * @return  a copy of the history of the columns.
+   */
+  public int[] getMoveHistory() {
+    int[] columns = new int[moveCount];
+    for (int i = 0 ; i < moveCount ; i++) {
+      columns[i] = moves[i] >>> 2;
+    }
+    return columns;
+  }
+  
+  /**
+   * Returns the record of the game played since it was started, to be stored with
+   * GameRecordWriter. A game that is still going on is recorded as it stands, ending now.
+   * 
+   * @return  the record of the moves, the mode, the status and the times of the game.
+   */
+  public GameRecord toRecord() {
+    Player firstPlayer = moveCount == 0 ? Player.ONE : PLAYERS[moves[0] & 0x3];
+    long end = status == Status.IN_PROGRESS ? System.currentTimeMillis() : endTime;
+    return GameRecord.of(ROW_LENGTH, COLUMN_LENGTH, CONNECT_LENGTH,
+        mode == null ? Mode.MULTI : mode, status, firstPlayer, startTime, end, getMoveHistory());
+  }
+  
+  /**
+   * Returns the board as an array of players indexed by [row][column]. The array is only a view
+   * of the packed board: it is built on the first request and afterwards kept up to date one
+   * cell at a time, or rebuilt on the next request after the board has been replaced or cleared.
+   * 
+   * @return  the cells of the board.
+   */
   public Player[][] getBoard() {
-    return board;
+    if (boardView == null) {
+      boardView = new Player[ROW_LENGTH][COLUMN_LENGTH];
+      boardViewIsStale = true;
+    }
+    if (boardViewIsStale) {
+      board.copyInto(boardView);
+      boardViewIsStale = false;
+    }
+    return boardView;
+  }
+  
+  public MoveStrategy getAIStrategy() {
+    return aiStrategy;
   }
   
   public boolean isSinglePlayer() {
@@ -422,7 +576,7 @@ public class ConnectFourModel {
   }
   
   public Player getDiscAt(int row, int column) {
-    return board[row][column];
+    return board.getDiscAt(row, column);
   }
   
   public Player getPreviousTurn() {
@@ -445,12 +599,61 @@ public class ConnectFourModel {
     this.previousPlayer = player;
   }
   
+  public void setAIStrategy(MoveStrategy aiStrategy) {
+    this.aiStrategy = aiStrategy;
+  }
+  
+  /**
+   * Places a disc at an arbitrary cell. The history read by undo() is dropped, since the board
+   * no longer follows from the moves in it.
+   * 
+   */
   public void setDiscAt(Player player, int row, int column) {
-    board[row][column] = player;
+    board.setDiscAt(player, row, column);
+    moveCount = 0;
+    redoLimit = 0;
+    if (boardView != null && !boardViewIsStale) {
+      boardView[row][column] = player;
+    }
   }
   
+  /**
+   * Replaces the content of the board with the given cells. If the array has the dimensions of
+   * the board, it is kept as the view returned by getBoard() so callers holding on to it keep
+   * seeing the state of the model.
+   * 
+   * @param board  the cells of the board indexed by [row][column].
+   */
   public void setBoard(Player[][] board) {
-    this.board = board;
+    this.board.load(board);
+    moveCount = 0;
+    redoLimit = 0;
+    if (board.length == ROW_LENGTH && board[0].length == COLUMN_LENGTH) {
+      boardView = board;
+    }
+    boardViewIsStale = true;
+  }
+  
+  /**
+   * Drops the disc of the player onto the top of the column, keeping the view returned by
+   * getBoard() in sync if it has already been built. The move is pushed onto the history
+   * read by undo(), packed as the player in the low 2 bits and the column above them, and
+   * the moves that had been taken back can no longer be played again.
+   * 
+   * @return  the index of the row the disc has landed on.
+   */
+  private int playDisc(Player player, int column) {
+    moves[moveCount++] = player.ordinal() | (column << 2);
+    redoLimit = moveCount;
+    return placeDisc(player, column);
+  }
+  
+  private int placeDisc(Player player, int column) {
+    int row = board.play(player, column);
+    if (boardView != null && !boardViewIsStale) {
+      boardView[row][column] = player;
+    }
+    return row;
   }
   
   /**
@@ -463,7 +666,7 @@ public class ConnectFourModel {
    */
   public void fireUpdateBoard(Player player, int row, int column) {
     for (ConnectFourListener listener:listeners) {
-      listener.updateBoard(board, player, row, column);
+      listener.updateBoard(getBoard(), player, row, column);
     }
   }
   
@@ -491,6 +694,12 @@ public class ConnectFourModel {
     }
   }
 
+  void fireMoveUndone(Player player, int row, int column) {
+    for (ConnectFourListener listener : listeners) {
+      listener.moveUndone(getBoard(), player, row, column);
+    }
+  }
+
   void fireClearBoard() {
     for (ConnectFourListener listener:listeners) {
       listener.clearBoard();
@@ -5,12 +5,17 @@ import edu.nyu.pqs.connectfour.ConnectFourPanelFactory.ConnectFourHeaderPanel;
 import edu.nyu.pqs.connectfour.ConnectFourPanelFactory.ConnectFourBoardPanel;
 import javax.swing.JOptionPane;
 import java.awt.BorderLayout;
+import java.util.concurrent.Executor;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 /**
  * This is a view class that is notified of the actions in the model and update the
  * graphical parts of the game. 
+ * The view is registered to the model through an AsyncListener that delivers the events on the
+ * event dispatch thread, so a dialog opened by the view, such as the one at the end of the game,
+ * never keeps the model from returning from the move that fired it.
  * 
  * @author  Ssangwook Hong
  * @date    Apr 24 2016
@@ -21,12 +26,21 @@ public class ConnectFourView implements ConnectFourListener{
   private ConnectFourHeaderPanel headerPanel;
   private ConnectFourBoardPanel boardPanel;
   private Player currentPlayer;
+  private final AsyncListener listener;
   JFrame frame;
   
+  private static final Executor EVENT_DISPATCH_THREAD = new Executor() {
+    @Override
+    public void execute(Runnable task) {
+      SwingUtilities.invokeLater(task);
+    }
+  };
+  
   private ConnectFourView(ConnectFourModel model, Player player) {
     frame = new JFrame();
     currentPlayer = player;
-    model.register(this);
+    listener = new AsyncListener.Builder(this).executor(EVENT_DISPATCH_THREAD).build();
+    model.register(listener);
 
     ConnectFourPanelFactory.Builder builder = new ConnectFourPanelFactory.Builder(model, this);
     ConnectFourPanelFactory factory = builder.build();
@@ -58,6 +72,12 @@ public class ConnectFourView implements ConnectFourListener{
   public void updateBoard(Player[][] board, Player player, int row, int column) {
     boardPanel.changeDiscColorAt(player, row, column);
   }
+  
+  @Override
+  public void moveUndone(Player[][] board, Player player, int row, int column) {
+    boardPanel.changeDiscColorAt(Player.EMPTY, row, column);
+    controlPanel.enableDiscButtons();
+  }
 
   @Override
   public void gameOver(Status status, Player player) {
@@ -101,6 +121,16 @@ public class ConnectFourView implements ConnectFourListener{
     frame.dispose();
   }
   
+  /**
+   * Returns the listener the view is registered to the model with, to be unregistered when the
+   * frame of the view is closed.
+   * 
+   * @return  the listener delivering the events of the model to the view.
+   */
+  public ConnectFourListener getListener() {
+    return listener;
+  }
+  
   public Player getPlayer(){
     return currentPlayer;
   }
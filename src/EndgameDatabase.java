@@ -0,0 +1,239 @@
+package edu.nyu.pqs.connectfour;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This is a database of the exact scores and best moves of the positions of the classic board
+ * with few empty cells left, stored in a file generated offline by EndgameDatabaseGenerator.
+ * Every position is stored once for itself and its mirror image, under its canonical key (see
+ * Position.canonicalKey()), in the records of OpeningBook: the key in the high bits, then the
+ * score and the best move of the canonical position.
+ *
+ * The records are sorted and compressed in blocks of BLOCK_RECORDS. Since the keys are sorted,
+ * every record after the first of its block is stored as its difference from the one before, a
+ * varint of one to nine bytes, which for the dense keys of an endgame is a fraction of the eight
+ * bytes of a record. The first record of every block is kept whole in an index in front of the
+ * blocks, along with the offset of the block, so a lookup is a binary search over the index and
+ * the decoding of a single block. The file is memory-mapped and read in place, so opening a
+ * database reads nothing but its last block up front and a lookup touches a few pages at most.
+ * The file is mapped as a single buffer, so a database is limited to 2 GB.
+ */
+public final class EndgameDatabase {
+
+  public static final long NOT_FOUND = -1L;
+  static final int MAGIC = 0x43344547;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 32;
+  static final int INDEX_ENTRY_BYTES = 16;
+  static final int BLOCK_RECORDS = 64;
+
+  private final MappedByteBuffer buffer;
+  private final int emptyCells;
+  private final int blockRecords;
+  private final long size;
+  private final int blocks;
+
+  private EndgameDatabase(MappedByteBuffer buffer) {
+    this.buffer = buffer;
+    emptyCells = buffer.getInt(8);
+    blockRecords = buffer.getInt(12);
+    size = buffer.getLong(16);
+    blocks = (int) buffer.getLong(24);
+  }
+
+  /**
+   * Maps a database file into memory.
+   *
+   * @param file  the file written by write().
+   * @return  the database backed by the file.
+   * @throws IOException  if the file cannot be read or is not a database.
+   */
+  public static EndgameDatabase open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Endgame database over 2 GB cannot be mapped: " + file);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC
+          || buffer.getInt(4) != VERSION) {
+        throw new IOException("Not an endgame database: " + file);
+      }
+      long count = buffer.getLong(16);
+      long blocks = buffer.getLong(24);
+      int blockRecords = buffer.getInt(12);
+      if (blockRecords < 1 || count < 0 || blocks != (count + blockRecords - 1) / blockRecords
+          || buffer.limit() < HEADER_BYTES + blocks * INDEX_ENTRY_BYTES
+          || (blocks > 0 && !lastBlockFits(buffer, count, blocks, blockRecords))) {
+        throw new IOException("Truncated endgame database: " + file);
+      }
+      return new EndgameDatabase(buffer);
+    }
+  }
+
+  /**
+   * Writes the records to a database file, sorted and with one record per position.
+   *
+   * @param file        the file to be written.
+   * @param records     the records created by OpeningBook.record(), in any order. The array is
+   *                    sorted in place and the records written are compacted to its front, so
+   *                    whatever is past them is left over and should not be used.
+   * @param emptyCells  the most empty cells of the positions in the records.
+   * @throws IOException  if the file cannot be written.
+   */
+  public static void write(Path file, long[] records, int emptyCells) throws IOException {
+    write(file, records, emptyCells, BLOCK_RECORDS);
+  }
+
+  static void write(Path file, long[] records, int emptyCells, int blockRecords)
+      throws IOException {
+    Arrays.sort(records);
+    int count = 0;
+    for (int i = 0 ; i < records.length ; i++) {
+      long key = OpeningBook.keyOf(records[i]);
+      if (count == 0 || key != OpeningBook.keyOf(records[count - 1])) {
+        records[count++] = records[i];
+      }
+    }
+    int blocks = (count + blockRecords - 1) / blockRecords;
+    long dataStart = HEADER_BYTES + (long) blocks * INDEX_ENTRY_BYTES;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer index = ByteBuffer.allocate(8 * 8192);
+      ByteBuffer data = ByteBuffer.allocate(8 * 8192);
+      long indexPosition = HEADER_BYTES;
+      long dataPosition = dataStart;
+      for (int block = 0 ; block < blocks ; block++) {
+        int first = block * blockRecords;
+        index.putLong(records[first]).putLong(dataPosition + data.position());
+        if (!index.hasRemaining()) {
+          index.flip();
+          indexPosition += writeAt(channel, index, indexPosition);
+        }
+        for (int i = first + 1 ; i < Math.min(count, first + blockRecords) ; i++) {
+          if (data.remaining() < 10) {
+            data.flip();
+            dataPosition += writeAt(channel, data, dataPosition);
+          }
+          putVarint(data, records[i] - records[i - 1]);
+        }
+      }
+      index.flip();
+      writeAt(channel, index, indexPosition);
+      data.flip();
+      writeAt(channel, data, dataPosition);
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putInt(MAGIC).putInt(VERSION).putInt(emptyCells).putInt(blockRecords)
+          .putLong(count).putLong(blocks).flip();
+      writeAt(channel, header, 0);
+    }
+  }
+
+  /**
+   * Finds the record of the position.
+   *
+   * @param key  the key of the position, as returned by Position.canonicalKey().
+   * @return  the record, to be read with OpeningBook.moveOf() and scoreOf(), or NOT_FOUND.
+   */
+  public long find(long key) {
+    if (blocks == 0) {
+      return NOT_FOUND;
+    }
+    int low = 0;
+    int high = blocks - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (OpeningBook.keyOf(firstRecordOf(middle)) <= key) {
+        low = middle;
+      }
+      else {
+        high = middle - 1;
+      }
+    }
+    long record = firstRecordOf(low);
+    int position = (int) buffer.getLong(HEADER_BYTES + low * INDEX_ENTRY_BYTES + 8);
+    int records = (int) Math.min(blockRecords, size - (long) low * blockRecords);
+    for (int i = 1 ; i < records && OpeningBook.keyOf(record) < key ; i++) {
+      long delta = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer.get(position++);
+        delta |= (long) (b & 0x7f) << shift;
+        shift += 7;
+      } while (b < 0);
+      record += delta;
+    }
+    return OpeningBook.keyOf(record) == key ? record : NOT_FOUND;
+  }
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  public long getSize() {
+    return size;
+  }
+
+  public int getEmptyCells() {
+    return emptyCells;
+  }
+
+  public long getFileBytes() {
+    return buffer.limit();
+  }
+
+  /**
+   * Checks that the last block starts past the index and that its deltas end within the file, so
+   * that a truncated file is rejected before find() reads past its end.
+   */
+  private static boolean lastBlockFits(ByteBuffer buffer, long count, long blocks,
+      int blockRecords) {
+    long dataStart = HEADER_BYTES + blocks * INDEX_ENTRY_BYTES;
+    long position = buffer.getLong((int) dataStart - 8);
+    if (position < dataStart || position > buffer.limit()) {
+      return false;
+    }
+    long deltas = count - (blocks - 1) * blockRecords - 1;
+    for (long i = 0 ; i < deltas ; i++) {
+      do {
+        if (position >= buffer.limit()) {
+          return false;
+        }
+      } while (buffer.get((int) position++) < 0);
+    }
+    return true;
+  }
+
+  private long firstRecordOf(int block) {
+    return buffer.getLong(HEADER_BYTES + block * INDEX_ENTRY_BYTES);
+  }
+
+  private static void putVarint(ByteBuffer buffer, long value) {
+    while ((value & ~0x7fL) != 0) {
+      buffer.put((byte) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  /**
+   * Writes the buffer at the position of the file and clears it.
+   *
+   * @return  the number of bytes written.
+   */
+  private static int writeAt(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    int bytes = buffer.remaining();
+    channel.position(position);
+    GameRecordWriter.writeFully(channel, buffer);
+    buffer.clear();
+    return bytes;
+  }
+}
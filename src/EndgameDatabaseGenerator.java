@@ -0,0 +1,209 @@
+package edu.nyu.pqs.connectfour;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * This is a command-line tool that builds an endgame database offline. Every position of the
+ * classic board with few empty cells left is far too many to enumerate from the empty board, so
+ * the database is built from roots instead: positions of real or random games at the point
+ * where the given number of empty cells is left. Every position reachable from a root is solved
+ * exactly and stored, so an AI playing from a root finds every position it reaches in the
+ * database, whichever way the opponent answers. The only positions left out are those after a
+ * player has passed up a win in one move, which the AI leaves to its search.
+ *
+ * A position is solved by trying every move, since there are few left, and the scores of the
+ * positions after them are looked up in the records of the positions solved so far, which are
+ * kept in an open-addressing table of primitive longs keyed by canonical key. A position and its
+ * mirror image are solved once, and the transpositions within and across the roots once too.
+ *
+ * Usage: EndgameDatabaseGenerator file [emptyCells [games [seed]]]
+ */
+public class EndgameDatabaseGenerator {
+
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  private final int emptyCells;
+  private long[] table = new long[INITIAL_CAPACITY];
+  private int size;
+  private long roots;
+
+  /**
+   * @param emptyCells  the positions with up to this number of empty cells are put in the
+   *                    database, at least 1.
+   */
+  public EndgameDatabaseGenerator(int emptyCells) {
+    if (emptyCells < 1 || emptyCells > Position.SIZE) {
+      throw new IllegalArgumentException("bad number of empty cells: " + emptyCells);
+    }
+    this.emptyCells = emptyCells;
+  }
+
+  /**
+   * Solves a root and every position reachable from it.
+   *
+   * @param position  the root, a game still going on with at most emptyCells empty cells. It is
+   *                  restored before returning.
+   */
+  public void add(Position position) {
+    if (Position.SIZE - position.getMoves() > emptyCells) {
+      throw new IllegalArgumentException("the root has more than " + emptyCells
+          + " empty cells: " + (Position.SIZE - position.getMoves()));
+    }
+    roots++;
+    solve(position);
+  }
+
+  /**
+   * Plays random games, each with its own column picked at random among those not full, and
+   * adds every game still going on when the given number of empty cells is left as a root.
+   *
+   * @param games  the number of games to be played.
+   * @param seed   the seed of the random columns.
+   */
+  public void addRandomGames(long games, long seed) {
+    RandomStrategy random = new RandomStrategy(seed);
+    Position position = new Position();
+    for (long game = 0 ; game < games ; game++) {
+      position.set(0L, 0L);
+      boolean won = false;
+      while (!won && Position.SIZE - position.getMoves() > emptyCells) {
+        int column = random.chooseColumn(position);
+        won = position.isWinningMove(column);
+        position.play(column);
+      }
+      if (!won) {
+        add(position);
+      }
+    }
+  }
+
+  /**
+   * Returns the records of the positions solved so far.
+   *
+   * @return  one record per canonical position, sorted by key.
+   */
+  public long[] getRecords() {
+    long[] records = new long[size];
+    int count = 0;
+    for (long record : table) {
+      if (record != 0) {
+        records[count++] = record;
+      }
+    }
+    Arrays.sort(records);
+    return records;
+  }
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  public long getRoots() {
+    return roots;
+  }
+
+  public int getEmptyCells() {
+    return emptyCells;
+  }
+
+  /**
+   * Scores the position exactly for the player to move, as NegamaxStrategy does, and stores
+   * its record unless the board is full. The positions after a position with a win in one move
+   * are not solved, since its score is known at once.
+   */
+  private int solve(Position position) {
+    int moves = position.getMoves();
+    if (moves >= Position.SIZE) {
+      return 0;
+    }
+    long key = position.canonicalKey();
+    long record = find(key);
+    if (record != 0) {
+      return OpeningBook.scoreOf(record);
+    }
+    for (int column = 0 ; column < Position.COLUMN_LENGTH ; column++) {
+      if (position.canPlay(column) && position.isWinningMove(column)) {
+        int score = (Position.SIZE + 1 - moves) / 2;
+        insert(OpeningBook.record(key, position.canonicalColumn(column), score));
+        return score;
+      }
+    }
+    int bestMove = -1;
+    int bestScore = Integer.MIN_VALUE;
+    for (int column = 0 ; column < Position.COLUMN_LENGTH ; column++) {
+      if (position.canPlay(column)) {
+        position.play(column);
+        int score = -solve(position);
+        position.undo(column);
+        if (score > bestScore) {
+          bestScore = score;
+          bestMove = column;
+        }
+      }
+    }
+    insert(OpeningBook.record(key, position.canonicalColumn(bestMove), bestScore));
+    return bestScore;
+  }
+
+  private long find(long key) {
+    int mask = table.length - 1;
+    for (int slot = slotOf(key, mask) ; table[slot] != 0 ; slot = (slot + 1) & mask) {
+      if (OpeningBook.keyOf(table[slot]) == key) {
+        return table[slot];
+      }
+    }
+    return 0;
+  }
+
+  private void insert(long record) {
+    if (2 * (size + 1) > table.length) {
+      long[] old = table;
+      table = new long[old.length * 2];
+      size = 0;
+      for (long entry : old) {
+        if (entry != 0) {
+          insert(entry);
+        }
+      }
+    }
+    int mask = table.length - 1;
+    int slot = slotOf(OpeningBook.keyOf(record), mask);
+    while (table[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = record;
+    size++;
+  }
+
+  private static int slotOf(long key, int mask) {
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: EndgameDatabaseGenerator file [emptyCells [games [seed]]]");
+      System.exit(1);
+    }
+    Path file = Paths.get(args[0]);
+    int emptyCells = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+    long games = args.length > 2 ? Long.parseLong(args[2]) : 10000;
+    long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+    long start = System.nanoTime();
+    EndgameDatabaseGenerator generator = new EndgameDatabaseGenerator(emptyCells);
+    generator.addRandomGames(games, seed);
+    long[] records = generator.getRecords();
+    EndgameDatabase.write(file, records, emptyCells);
+    long bytes = EndgameDatabase.open(file).getFileBytes();
+    System.out.printf("Wrote %d positions from %d roots to %s in %d ms, %.2f bytes each%n",
+        records.length, generator.getRoots(), file, (System.nanoTime() - start) / 1000000,
+        (double) bytes / Math.max(1, records.length));
+  }
+}
@@ -0,0 +1,50 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is a strategy that plays the move of the endgame database once few enough cells are left
+ * for the position to be in it, and asks another strategy otherwise. The database holds
+ * canonical positions, so the move found for the mirror image of the position is mirrored back.
+ */
+public class EndgameDatabaseStrategy implements MoveStrategy {
+
+  private final EndgameDatabase database;
+  private final MoveStrategy fallback;
+  private long databaseMoves;
+
+  /**
+   * @param database  the database to be consulted first in the late game.
+   * @param fallback  the strategy for the positions that are not in the database.
+   */
+  public EndgameDatabaseStrategy(EndgameDatabase database, MoveStrategy fallback) {
+    this.database = database;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public int chooseColumn(Position position) {
+    if (Position.SIZE - position.getMoves() <= database.getEmptyCells()) {
+      long record = database.find(position.canonicalKey());
+      if (record != EndgameDatabase.NOT_FOUND) {
+        int column = position.canonicalColumn(OpeningBook.moveOf(record));
+        if (position.canPlay(column)) {
+          databaseMoves++;
+          return column;
+        }
+      }
+    }
+    return fallback.chooseColumn(position);
+  }
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  public long getDatabaseMoves() {
+    return databaseMoves;
+  }
+
+  public MoveStrategy getFallback() {
+    return fallback;
+  }
+}
@@ -0,0 +1,332 @@
+package edu.nyu.pqs.connectfour;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This is an archive of games backed by a file of records written by GameRecordWriter, which is
+ * memory-mapped rather than read, along with an index file next to it holding the offset of every
+ * record as a long. Any game is fetched by its number from the index without scanning the games
+ * before it, and a Cursor walks over the games reading their fields straight from the mapped
+ * file, so a scan over the whole archive neither copies nor allocates anything per game.
+ *
+ * A buffer cannot map more than 2 GB, so both files are mapped as segments of a fixed size. The
+ * segments of the records overlap by the length of the longest record, so a record starting in
+ * a segment always ends in it. The index is written the first time an archive is opened, and
+ * written again when the file of records has grown or shrunk since.
+ *
+ * Usage: GameArchive file
+ */
+public final class GameArchive {
+
+  static final int INDEX_MAGIC = 0x43344749;
+  static final int INDEX_VERSION = 1;
+  static final int INDEX_HEADER_BYTES = 24;
+  static final int SEGMENT_BYTES = 1 << 30;
+
+  private final MappedByteBuffer[] records;
+  private final MappedByteBuffer[] index;
+  private final long count;
+  private final int segmentBytes;
+
+  private GameArchive(MappedByteBuffer[] records, MappedByteBuffer[] index, long count,
+      int segmentBytes) {
+    this.records = records;
+    this.index = index;
+    this.count = count;
+    this.segmentBytes = segmentBytes;
+  }
+
+  /**
+   * Maps a file of records into memory, writing its index first if it is missing or stale.
+   *
+   * @param file  the file written by GameRecordWriter.
+   * @return  the archive backed by the file.
+   * @throws IOException  if the file cannot be read or is not a file of records.
+   */
+  public static GameArchive open(Path file) throws IOException {
+    return open(file, SEGMENT_BYTES);
+  }
+
+  static GameArchive open(Path file, int segmentBytes) throws IOException {
+    if (segmentBytes % 8 != 0 || segmentBytes < GameRecord.MAX_ENCODED_LENGTH) {
+      throw new IllegalArgumentException("bad segment size: " + segmentBytes);
+    }
+    Path indexFile = indexFileOf(file);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      GameRecordReader.checkHeader(channel, file);
+      MappedByteBuffer[] records = map(channel, segmentBytes, GameRecord.MAX_ENCODED_LENGTH);
+      if (!indexIsCurrent(indexFile, channel.size())) {
+        writeIndex(records, channel.size(), segmentBytes, indexFile);
+      }
+      try (FileChannel indexChannel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+        long count = (indexChannel.size() - INDEX_HEADER_BYTES) / 8;
+        return new GameArchive(records, map(indexChannel, segmentBytes, 0), count,
+            segmentBytes);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of games in the archive.
+   *
+   * @return  the number of games.
+   */
+  public long size() {
+    return count;
+  }
+
+  /**
+   * Fetches a game by its number.
+   *
+   * @param game  the number of the game, from 0 in the order the games were written.
+   * @return  the record of the game.
+   */
+  public GameRecord get(long game) {
+    long offset = offsetOf(game);
+    ByteBuffer segment = records[(int) (offset / segmentBytes)].duplicate();
+    segment.position((int) (offset % segmentBytes));
+    return GameRecord.readFrom(segment);
+  }
+
+  /**
+   * Returns a cursor over the games, positioned before the first one.
+   *
+   * @return  the cursor.
+   */
+  public Cursor cursor() {
+    return cursor(0, count);
+  }
+
+  /**
+   * Returns a cursor over a range of the games, positioned before the first one of the range.
+   * The ranges of several cursors can be scanned at the same time by different threads.
+   *
+   * @param from  the number of the first game of the range.
+   * @param to    the number after the last game of the range.
+   * @return  the cursor.
+   */
+  public Cursor cursor(long from, long to) {
+    if (from < 0 || from > to || to > count) {
+      throw new IndexOutOfBoundsException("games " + from + " to " + to + " of " + count);
+    }
+    return new Cursor(from, to);
+  }
+
+  /**
+   * This is a view of one game of the archive at a time, whose fields are read from the mapped
+   * file when they are asked for. It is moved to the next game by next(), and must not be shared
+   * between threads.
+   */
+  public final class Cursor {
+    private final long end;
+    private long game;
+    private long offset;
+    private ByteBuffer segment;
+    private int position;
+
+    private Cursor(long from, long to) {
+      end = to;
+      game = from - 1;
+      offset = from < to ? offsetOf(from) : 0;
+      position = -1;
+    }
+
+    /**
+     * Moves to the next game.
+     *
+     * @return  false if there are no more games in the range.
+     */
+    public boolean next() {
+      if (game + 1 >= end) {
+        game = end;
+        return false;
+      }
+      if (position >= 0) {
+        offset += GameRecord.encodedLength(segment, position);
+      }
+      game++;
+      int segmentIndex = (int) (offset / segmentBytes);
+      segment = records[segmentIndex];
+      position = (int) (offset - (long) segmentIndex * segmentBytes);
+      return true;
+    }
+
+    /**
+     * Gets the value of the indicated variables of the current game.
+     *
+     * @return  value of the variables in interest.
+     */
+    public long getGame() {
+      return game;
+    }
+
+    public int getMoveCount() {
+      return segment.get(position + GameRecord.MOVE_COUNT_OFFSET) & 0xff;
+    }
+
+    public Status getStatus() {
+      return GameRecord.statusOf(segment, position);
+    }
+
+    public long getStartTime() {
+      return segment.getLong(position + GameRecord.START_TIME_OFFSET);
+    }
+
+    /**
+     * Returns the column of a move of the current game.
+     *
+     * @param move  the index of the move, from 0.
+     * @return  the column the disc was dropped into.
+     */
+    public int getColumn(int move) {
+      return GameRecord.columnOf(segment, position, move);
+    }
+
+    /**
+     * Returns the player of a move of the current game.
+     *
+     * @param move  the index of the move, from 0.
+     * @return  the player who dropped the disc.
+     */
+    public Player getPlayer(int move) {
+      return GameRecord.playerOf(segment, position, move);
+    }
+
+    /**
+     * Returns the winner of the current game.
+     *
+     * @return  the player of the last move if the game was won, Player.EMPTY otherwise.
+     */
+    public Player getWinner() {
+      int moveCount = getMoveCount();
+      return getStatus() == Status.WIN && moveCount > 0 ? getPlayer(moveCount - 1)
+          : Player.EMPTY;
+    }
+
+    /**
+     * Decodes the current game into a record of its own.
+     *
+     * @return  the record of the game.
+     */
+    public GameRecord toRecord() {
+      ByteBuffer buffer = segment.duplicate();
+      buffer.position(position);
+      return GameRecord.readFrom(buffer);
+    }
+  }
+
+  private long offsetOf(long game) {
+    if (game < 0 || game >= count) {
+      throw new IndexOutOfBoundsException("game " + game + " of " + count);
+    }
+    long position = INDEX_HEADER_BYTES + game * 8;
+    return index[(int) (position / segmentBytes)].getLong((int) (position % segmentBytes));
+  }
+
+  static Path indexFileOf(Path file) {
+    return file.resolveSibling(file.getFileName() + ".idx");
+  }
+
+  /**
+   * Maps the whole file as segments of the given size, each extended by the overlap.
+   */
+  private static MappedByteBuffer[] map(FileChannel channel, int segmentBytes, int overlap)
+      throws IOException {
+    long size = channel.size();
+    int segments = (int) Math.max(1, (size + segmentBytes - 1) / segmentBytes);
+    MappedByteBuffer[] buffers = new MappedByteBuffer[segments];
+    for (int i = 0 ; i < segments ; i++) {
+      long start = (long) i * segmentBytes;
+      long length = Math.min(size - start, (long) segmentBytes + overlap);
+      buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, length));
+    }
+    return buffers;
+  }
+
+  private static boolean indexIsCurrent(Path indexFile, long recordsSize) throws IOException {
+    if (!Files.exists(indexFile)) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_BYTES);
+      while (header.hasRemaining()) {
+        if (channel.read(header, header.position()) < 0) {
+          return false;
+        }
+      }
+      return header.getInt(0) == INDEX_MAGIC && header.getInt(4) == INDEX_VERSION
+          && header.getLong(16) == recordsSize
+          && channel.size() == INDEX_HEADER_BYTES + header.getLong(8) * 8;
+    }
+  }
+
+  /**
+   * Walks over the records and writes the offset of each one to the index file.
+   */
+  private static void writeIndex(MappedByteBuffer[] records, long size, int segmentBytes,
+      Path indexFile) throws IOException {
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      channel.position(INDEX_HEADER_BYTES);
+      ByteBuffer buffer = ByteBuffer.allocate(8 * 8192);
+      long count = 0;
+      long offset = GameRecordWriter.HEADER_BYTES;
+      while (offset < size) {
+        int segmentIndex = (int) (offset / segmentBytes);
+        MappedByteBuffer segment = records[segmentIndex];
+        int position = (int) (offset - (long) segmentIndex * segmentBytes);
+        if (size - offset < GameRecord.HEADER_BYTES
+            || size - offset < GameRecord.encodedLength(segment, position)) {
+          throw new IOException("Truncated game record at " + offset);
+        }
+        buffer.putLong(offset);
+        if (!buffer.hasRemaining()) {
+          buffer.flip();
+          GameRecordWriter.writeFully(channel, buffer);
+          buffer.clear();
+        }
+        offset += GameRecord.encodedLength(segment, position);
+        count++;
+      }
+      buffer.flip();
+      GameRecordWriter.writeFully(channel, buffer);
+      ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_BYTES);
+      header.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(count).putLong(size).flip();
+      channel.position(0);
+      GameRecordWriter.writeFully(channel, header);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: GameArchive file");
+      System.exit(1);
+    }
+    long start = System.nanoTime();
+    GameArchive archive = open(Paths.get(args[0]));
+    long opened = System.nanoTime();
+    long[] outcomes = new long[Player.values().length];
+    long moves = 0;
+    Cursor cursor = archive.cursor();
+    while (cursor.next()) {
+      outcomes[cursor.getWinner().ordinal()]++;
+      moves += cursor.getMoveCount();
+    }
+    long scanned = System.nanoTime();
+    System.out.printf("%d games opened in %.3f s, scanned in %.3f s, %.0f games/s%n",
+        archive.size(), (opened - start) / 1e9, (scanned - opened) / 1e9,
+        archive.size() * 1e9 / Math.max(1, scanned - opened));
+    System.out.printf("%.2f moves per game%n", (double) moves / Math.max(1, archive.size()));
+    for (Player player : Player.values()) {
+      System.out.printf("%s %d%n", player == Player.EMPTY ? "no winner" : player.toString(),
+          outcomes[player.ordinal()]);
+    }
+  }
+}
@@ -0,0 +1,312 @@
+package edu.nyu.pqs.connectfour;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This is the record of a game played on the model, as it is stored by GameRecordWriter. A record
+ * takes a header of 15 bytes and half a byte per move, so a game of 42 moves on the classic board
+ * is stored in 36 bytes:
+ *   byte 0       the number of rows in the high 4 bits, the number of columns in the low 4 bits.
+ *   byte 1       the length of line to connect in the high 4 bits, then whether the first move
+ *                was not played by Player.ONE, whether the game was in single-player mode, and
+ *                the status of the game in the low 2 bits.
+ *   bytes 2-9    the time the game was started, in milliseconds since the epoch.
+ *   bytes 10-13  the time from the start of the game to its end, in milliseconds.
+ *   byte 14      the number of moves.
+ *   then         the columns of the moves, two per byte, the first in the high 4 bits.
+ * The players are not stored, since they take turns: the first move is played by Player.ONE
+ * unless the flag says otherwise, and the other player is Player.AI in single-player mode.
+ * Boards of up to 15 rows and 15 columns can be recorded.
+ */
+public final class GameRecord {
+
+  static final int HEADER_BYTES = 15;
+  static final int MAX_DIMENSION = 15;
+  static final int MAX_ENCODED_LENGTH = HEADER_BYTES + (MAX_DIMENSION * MAX_DIMENSION + 1) / 2;
+  static final int FLAGS_OFFSET = 1;
+  static final int START_TIME_OFFSET = 2;
+  static final int DURATION_OFFSET = 10;
+  static final int MOVE_COUNT_OFFSET = 14;
+
+  private static final Status[] STATUSES = Status.values();
+
+  private final int rowLength;
+  private final int columnLength;
+  private final int connectLength;
+  private final Mode mode;
+  private final Status status;
+  private final Player firstPlayer;
+  private final long startTime;
+  private final int duration;
+  private final int moveCount;
+  private final byte[] moves;
+
+  private GameRecord(int rows, int columns, int connect, Mode mode, Status status,
+      Player firstPlayer, long startTime, int duration, int moveCount, byte[] moves) {
+    this.rowLength = rows;
+    this.columnLength = columns;
+    this.connectLength = connect;
+    this.mode = mode;
+    this.status = status;
+    this.firstPlayer = firstPlayer;
+    this.startTime = startTime;
+    this.duration = duration;
+    this.moveCount = moveCount;
+    this.moves = moves;
+  }
+
+  /**
+   * Creates the record of a game.
+   *
+   * @param rows         the number of rows of the board.
+   * @param columns      the number of columns of the board.
+   * @param connect      the number of discs to connect to win.
+   * @param mode         the mode the game was played in.
+   * @param status       the status of the game after the last move.
+   * @param firstPlayer  the player who played the first move, Player.ONE or its opponent.
+   * @param startTime    the time the game was started, in milliseconds since the epoch.
+   * @param endTime      the time the game ended, in milliseconds since the epoch.
+   * @param moves        the columns of the moves, in order.
+   * @return  the record.
+   */
+  public static GameRecord of(int rows, int columns, int connect, Mode mode, Status status,
+      Player firstPlayer, long startTime, long endTime, int[] moves) {
+    if (rows < 1 || rows > MAX_DIMENSION || columns < 1 || columns > MAX_DIMENSION
+        || connect < 1 || connect > MAX_DIMENSION) {
+      throw new IllegalArgumentException("board cannot be recorded: " + rows + "x" + columns
+          + ", connect " + connect);
+    }
+    if (moves.length > rows * columns) {
+      throw new IllegalArgumentException("too many moves: " + moves.length);
+    }
+    byte[] packed = new byte[(moves.length + 1) / 2];
+    for (int i = 0 ; i < moves.length ; i++) {
+      if (moves[i] < 0 || moves[i] >= columns) {
+        throw new IllegalArgumentException("column out of the board: " + moves[i]);
+      }
+      packed[i >> 1] |= moves[i] << ((i & 1) == 0 ? 4 : 0);
+    }
+    long duration = Math.max(0, Math.min(Integer.MAX_VALUE, endTime - startTime));
+    return new GameRecord(rows, columns, connect, mode, status,
+        firstPlayer == Player.ONE ? Player.ONE : otherPlayer(mode, Player.ONE), startTime,
+        (int) duration, moves.length, packed);
+  }
+
+  /**
+   * Returns the number of bytes the record takes once encoded.
+   *
+   * @return  the length of the record in bytes.
+   */
+  public int encodedLength() {
+    return HEADER_BYTES + moves.length;
+  }
+
+  /**
+   * Encodes the record into the buffer at its position, which is moved past the record.
+   *
+   * @param buffer  the buffer, with at least encodedLength() bytes remaining.
+   */
+  public void writeTo(ByteBuffer buffer) {
+    int flags = (firstPlayer == Player.ONE ? 0 : 0x8) | (mode == Mode.SINGLE ? 0x4 : 0)
+        | status.ordinal();
+    buffer.put((byte) (rowLength << 4 | columnLength));
+    buffer.put((byte) (connectLength << 4 | flags));
+    buffer.putLong(startTime);
+    buffer.putInt(duration);
+    buffer.put((byte) moveCount);
+    buffer.put(moves);
+  }
+
+  /**
+   * Decodes a record from the buffer at its position, which is moved past the record.
+   *
+   * @param buffer  the buffer holding an encoded record.
+   * @return  the record.
+   * @throws IllegalArgumentException  if the bytes are not a record, or the record is cut short.
+   */
+  public static GameRecord readFrom(ByteBuffer buffer) {
+    try {
+      int dimensions = buffer.get() & 0xff;
+      int flags = buffer.get() & 0xff;
+      long startTime = buffer.getLong();
+      int duration = buffer.getInt();
+      int moveCount = buffer.get() & 0xff;
+      int rows = dimensions >>> 4;
+      int columns = dimensions & 0xf;
+      int connect = flags >>> 4;
+      if (rows == 0 || columns == 0 || connect == 0 || (flags & 0x3) >= STATUSES.length
+          || moveCount > rows * columns || duration < 0) {
+        throw new IllegalArgumentException("corrupt game record");
+      }
+      byte[] moves = new byte[(moveCount + 1) / 2];
+      buffer.get(moves);
+      Mode mode = (flags & 0x4) != 0 ? Mode.SINGLE : Mode.MULTI;
+      Player firstPlayer = (flags & 0x8) == 0 ? Player.ONE : otherPlayer(mode, Player.ONE);
+      return new GameRecord(rows, columns, connect, mode, STATUSES[flags & 0x3], firstPlayer,
+          startTime, duration, moveCount, moves);
+    }
+    catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("truncated game record", e);
+    }
+  }
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  public int getRowLength() {
+    return rowLength;
+  }
+
+  public int getColumnLength() {
+    return columnLength;
+  }
+
+  public int getConnectLength() {
+    return connectLength;
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public Player getFirstPlayer() {
+    return firstPlayer;
+  }
+
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public long getEndTime() {
+    return startTime + duration;
+  }
+
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  /**
+   * Returns the column of a move.
+   *
+   * @param move  the index of the move, from 0.
+   * @return  the column the disc was dropped into.
+   */
+  public int getColumn(int move) {
+    if (move < 0 || move >= moveCount) {
+      throw new IndexOutOfBoundsException("move " + move + " of " + moveCount);
+    }
+    return (moves[move >> 1] >>> ((move & 1) == 0 ? 4 : 0)) & 0xf;
+  }
+
+  /**
+   * Returns the player of a move.
+   *
+   * @param move  the index of the move, from 0.
+   * @return  the player who dropped the disc.
+   */
+  public Player getPlayer(int move) {
+    return (move & 1) == 0 ? firstPlayer : otherPlayer(mode, firstPlayer);
+  }
+
+  /**
+   * Returns the winner of the game.
+   *
+   * @return  the player of the last move if the game was won, Player.EMPTY otherwise.
+   */
+  public Player getWinner() {
+    return status == Status.WIN && moveCount > 0 ? getPlayer(moveCount - 1) : Player.EMPTY;
+  }
+
+  /**
+   * Returns the columns of the moves.
+   *
+   * @return  a new array of the columns, in order.
+   */
+  public int[] getColumns() {
+    int[] columns = new int[moveCount];
+    for (int i = 0 ; i < moveCount ; i++) {
+      columns[i] = getColumn(i);
+    }
+    return columns;
+  }
+
+  /**
+   * Returns the length of the encoded record at the offset of the buffer, without decoding it.
+   */
+  static int encodedLength(ByteBuffer buffer, int offset) {
+    return HEADER_BYTES + ((buffer.get(offset + MOVE_COUNT_OFFSET) & 0xff) + 1) / 2;
+  }
+
+  /**
+   * Returns the status of the encoded record at the offset of the buffer, without decoding it.
+   */
+  static Status statusOf(ByteBuffer buffer, int offset) {
+    int status = buffer.get(offset + FLAGS_OFFSET) & 0x3;
+    if (status >= STATUSES.length) {
+      throw new IllegalArgumentException("corrupt game record");
+    }
+    return STATUSES[status];
+  }
+
+  /**
+   * Returns the player of a move of the encoded record at the offset of the buffer, without
+   * decoding it.
+   */
+  static Player playerOf(ByteBuffer buffer, int offset, int move) {
+    int flags = buffer.get(offset + FLAGS_OFFSET);
+    Mode mode = (flags & 0x4) != 0 ? Mode.SINGLE : Mode.MULTI;
+    Player first = (flags & 0x8) == 0 ? Player.ONE : otherPlayer(mode, Player.ONE);
+    return (move & 1) == 0 ? first : otherPlayer(mode, first);
+  }
+
+  /**
+   * Returns the column of a move of the encoded record at the offset of the buffer, without
+   * decoding it.
+   */
+  static int columnOf(ByteBuffer buffer, int offset, int move) {
+    return (buffer.get(offset + HEADER_BYTES + (move >> 1)) >>> ((move & 1) == 0 ? 4 : 0))
+        & 0xf;
+  }
+
+  /**
+   * Returns the opponent of the player in the mode.
+   */
+  private static Player otherPlayer(Mode mode, Player player) {
+    if (player != Player.ONE) {
+      return Player.ONE;
+    }
+    return mode == Mode.SINGLE ? Player.AI : Player.TWO;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof GameRecord)) {
+      return false;
+    }
+    GameRecord record = (GameRecord) other;
+    return rowLength == record.rowLength && columnLength == record.columnLength
+        && connectLength == record.connectLength && mode == record.mode
+        && status == record.status && firstPlayer == record.firstPlayer
+        && startTime == record.startTime && duration == record.duration
+        && moveCount == record.moveCount && Arrays.equals(moves, record.moves);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Long.hashCode(startTime) + Arrays.hashCode(moves);
+  }
+
+  @Override
+  public String toString() {
+    return rowLength + "x" + columnLength + " connect " + connectLength + ", " + mode + ", "
+        + status + ", " + moveCount + " moves " + Arrays.toString(getColumns());
+  }
+}
@@ -0,0 +1,119 @@
+package edu.nyu.pqs.connectfour;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This is a reader of the records of games written by GameRecordWriter, from the first to the
+ * last. The file is read in large blocks into a buffer the records are decoded from, so the
+ * reader holds no more than one block of the file at a time, however many games it holds.
+ */
+public final class GameRecordReader implements Closeable {
+
+  private static final int BUFFER_BYTES = 1 << 16;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+  private final Path file;
+
+  private GameRecordReader(FileChannel channel, Path file) {
+    this.channel = channel;
+    this.file = file;
+    buffer.flip();
+  }
+
+  /**
+   * Opens a file of records for reading.
+   *
+   * @param file  the file written by GameRecordWriter.
+   * @return  the reader, positioned at the first record.
+   * @throws IOException  if the file cannot be read or is not a file of records.
+   */
+  public static GameRecordReader open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      checkHeader(channel, file);
+      channel.position(GameRecordWriter.HEADER_BYTES);
+      return new GameRecordReader(channel, file);
+    }
+    catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the next record.
+   *
+   * @return  the record, or null if all the records have been read.
+   * @throws IOException  if the file cannot be read, or ends in the middle of a record.
+   */
+  public GameRecord read() throws IOException {
+    if (!fill(GameRecord.HEADER_BYTES)) {
+      if (buffer.hasRemaining()) {
+        throw new IOException("Truncated game record in " + file);
+      }
+      return null;
+    }
+    int moveCount = buffer.get(buffer.position() + GameRecord.HEADER_BYTES - 1) & 0xff;
+    if (!fill(GameRecord.HEADER_BYTES + (moveCount + 1) / 2)) {
+      throw new IOException("Truncated game record in " + file);
+    }
+    try {
+      return GameRecord.readFrom(buffer);
+    }
+    catch (IllegalArgumentException e) {
+      throw new IOException("Corrupt game record in " + file, e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Reads more of the file until the buffer holds at least the given number of bytes.
+   *
+   * @return  false if the file ends first.
+   */
+  private boolean fill(int bytes) throws IOException {
+    if (buffer.remaining() >= bytes) {
+      return true;
+    }
+    buffer.compact();
+    try {
+      while (buffer.position() < bytes) {
+        if (channel.read(buffer) < 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+    finally {
+      buffer.flip();
+    }
+  }
+
+  /**
+   * Checks that the file starts with the header written by GameRecordWriter.
+   */
+  static void checkHeader(FileChannel channel, Path file) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(GameRecordWriter.HEADER_BYTES);
+    while (header.hasRemaining()) {
+      if (channel.read(header, header.position()) < 0) {
+        break;
+      }
+    }
+    header.flip();
+    if (header.limit() < GameRecordWriter.HEADER_BYTES
+        || header.getInt(0) != GameRecordWriter.MAGIC
+        || header.getInt(4) != GameRecordWriter.VERSION) {
+      throw new IOException("Not a file of game records: " + file);
+    }
+  }
+}
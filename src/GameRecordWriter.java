@@ -0,0 +1,147 @@
+package edu.nyu.pqs.connectfour;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This is a writer appending the records of games to a file, which starts with a short header and
+ * then holds the records one after the other, encoded as GameRecord.writeTo() does. The records
+ * are gathered in a buffer and written in large blocks, so writing millions of games costs a few
+ * thousand writes, and a file can be opened again later to append more games to it. A record
+ * cut short at the end of the file, as a crash in the middle of a write leaves it, is dropped
+ * when the file is opened again, so the games appended after it can still be read.
+ */
+public final class GameRecordWriter implements Closeable {
+
+  static final int MAGIC = 0x43344752;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 8;
+
+  private static final int BUFFER_BYTES = 1 << 16;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+  private long count;
+
+  private GameRecordWriter(FileChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Opens a file of records for appending, creating it if it does not exist yet. The file is cut
+   * back to the end of its last complete record.
+   *
+   * @param file  the file of records.
+   * @return  the writer, positioned at the end of the last complete record.
+   * @throws IOException  if the file cannot be written or is not a file of records.
+   */
+  public static GameRecordWriter open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      if (channel.size() == 0) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(channel, header);
+      }
+      else {
+        GameRecordReader.checkHeader(channel, file);
+        channel.truncate(endOfRecords(channel));
+      }
+      channel.position(channel.size());
+      return new GameRecordWriter(channel);
+    }
+    catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Appends the record of a game.
+   *
+   * @param record  the record to be written.
+   * @throws IOException  if the file cannot be written.
+   */
+  public void write(GameRecord record) throws IOException {
+    if (buffer.remaining() < record.encodedLength()) {
+      flush();
+    }
+    record.writeTo(buffer);
+    count++;
+  }
+
+  /**
+   * Writes the records that are still in the buffer to the file.
+   *
+   * @throws IOException  if the file cannot be written.
+   */
+  public void flush() throws IOException {
+    buffer.flip();
+    writeFully(channel, buffer);
+    buffer.clear();
+  }
+
+  /**
+   * Returns the number of records written by this writer.
+   *
+   * @return  the number of records, not counting those already in the file when it was opened.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    }
+    finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Walks the records of the file from the first one, reading it in large blocks.
+   *
+   * @return  the offset just past the last record that is whole in the file.
+   */
+  private static long endOfRecords(FileChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    buffer.flip();
+    long size = channel.size();
+    long read = HEADER_BYTES;
+    long end = HEADER_BYTES;
+    while (true) {
+      if (buffer.remaining() < GameRecord.MAX_ENCODED_LENGTH && read < size) {
+        buffer.compact();
+        int bytes = channel.read(buffer, read);
+        buffer.flip();
+        if (bytes < 0) {
+          break;
+        }
+        read += bytes;
+      }
+      if (buffer.remaining() < GameRecord.HEADER_BYTES) {
+        break;
+      }
+      int length = GameRecord.encodedLength(buffer, buffer.position());
+      if (buffer.remaining() < length) {
+        break;
+      }
+      buffer.position(buffer.position() + length);
+      end += length;
+    }
+    return end;
+  }
+
+  static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
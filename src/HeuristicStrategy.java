@@ -0,0 +1,261 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is a depth-limited search engine for the AI on boards of any size, where the end of the
+ * game is too far away for NegamaxStrategy to see. It runs a negamax search with alpha-beta
+ * pruning, center columns first, deepened one ply at a time until its time budget or its
+ * maximum depth is reached, and scores the positions where it stops with a ThreatEvaluator.
+ * The evaluator follows every move the search plays and takes back on its own board, so
+ * scoring a position only adds up counts that are already there.
+ *
+ * A won position is worth WIN_SCORE less the number of plies it takes to win, so a quicker win
+ * is preferred to a slower one, and a loss that cannot be avoided is put off for as long as
+ * possible. An instance keeps its board, its evaluator and the counters of its last search, so
+ * it should not be shared by games running concurrently.
+ */
+public class HeuristicStrategy implements BoardStrategy {
+
+  static final int WIN_SCORE = 1 << 28;
+  private static final int TIME_CHECK_INTERVAL = 1024;
+
+  private final int maxDepth;
+  private final long timeBudgetNanos;
+  private Board board;
+  private ThreatEvaluator evaluator;
+  private int[] order;
+  private long deadline;
+  private boolean aborted;
+  private int emptyCells;
+  private long nodeCount;
+  private int depthReached;
+  private int score;
+
+  /**
+   * This class is the builder for the strategy. Every option has a default, so only the budgets
+   * that matter to the caller have to be set.
+   */
+  public static class Builder {
+    private int maxDepth = 8;
+    private long timeBudgetMillis = 250;
+
+    /**
+     * Limits the number of plies searched ahead.
+     *
+     * @param maxDepth  the deepest iteration to be searched, at least 1.
+     */
+    public Builder maxDepth(int maxDepth) {
+      if (maxDepth < 1) {
+        throw new IllegalArgumentException("maxDepth must be at least 1: " + maxDepth);
+      }
+      this.maxDepth = maxDepth;
+      return this;
+    }
+
+    /**
+     * Limits the wall-clock time spent on a single move.
+     *
+     * @param timeBudgetMillis  the time in milliseconds, or 0 for no limit.
+     */
+    public Builder timeBudgetMillis(long timeBudgetMillis) {
+      if (timeBudgetMillis < 0) {
+        throw new IllegalArgumentException("timeBudgetMillis is negative: " + timeBudgetMillis);
+      }
+      this.timeBudgetMillis = timeBudgetMillis;
+      return this;
+    }
+
+    /**
+     * Build the strategy with the corresponding options.
+     *
+     * @return  HeuristicStrategy that has been built.
+     */
+    public HeuristicStrategy build() {
+      return new HeuristicStrategy(this);
+    }
+  }
+
+  private HeuristicStrategy(Builder builder) {
+    maxDepth = builder.maxDepth;
+    timeBudgetNanos = builder.timeBudgetMillis == 0
+        ? Long.MAX_VALUE : builder.timeBudgetMillis * 1000000L;
+  }
+
+  @Override
+  public int chooseColumn(Position position) {
+    BitBoard board = new BitBoard();
+    position.copyInto(board, Player.AI, Player.ONE);
+    return chooseColumn(board, Player.AI, Player.ONE);
+  }
+
+  @Override
+  public int chooseColumn(Board game, Player player, Player opponent) {
+    nodeCount = 0;
+    depthReached = 0;
+    score = 0;
+    aborted = false;
+    deadline = NegamaxStrategy.deadlineAfter(timeBudgetNanos);
+    load(game);
+
+    int bestColumn = -1;
+    for (int column : order) {
+      if (!board.columnIsFull(column)) {
+        if (board.isWinningMove(player, column)) {
+          score = WIN_SCORE - 1;
+          return column;
+        }
+        if (bestColumn == -1) {
+          bestColumn = column;
+        }
+      }
+    }
+
+    int depthLimit = Math.min(maxDepth, emptyCells);
+    for (int depth = 1 ; depth <= depthLimit ; depth++) {
+      int alpha = -WIN_SCORE;
+      int bestScore = Integer.MIN_VALUE;
+      int bestOfDepth = -1;
+      for (int column : order) {
+        if (board.columnIsFull(column)) {
+          continue;
+        }
+        int row = play(player, column);
+        int value = -negamax(opponent, player, -WIN_SCORE, -alpha, depth - 1, 1);
+        undo(row, column);
+        if (aborted) {
+          break;
+        }
+        if (value > bestScore) {
+          bestScore = value;
+          bestOfDepth = column;
+        }
+        if (value > alpha) {
+          alpha = value;
+        }
+      }
+      if (aborted) {
+        break;
+      }
+      bestColumn = bestOfDepth;
+      depthReached = depth;
+      score = bestScore;
+      NegamaxStrategy.moveToFront(order, bestColumn);
+      if (Math.abs(bestScore) > WIN_SCORE - emptyCells - 1) {
+        break;
+      }
+    }
+    return bestColumn;
+  }
+
+  /**
+   * Scores the position for the player to move, looking at most depth plies ahead.
+   *
+   * @param side   the player to move.
+   * @param other  the other player.
+   * @param alpha  the score the player to move is already guaranteed.
+   * @param beta   the score the opponent is already guaranteed, negated.
+   * @param depth  the number of plies left to search.
+   * @param ply    the number of plies played since the root.
+   * @return  the score of the position, or a bound of it outside of (alpha, beta).
+   */
+  private int negamax(Player side, Player other, int alpha, int beta, int depth, int ply) {
+    if (++nodeCount % TIME_CHECK_INTERVAL == 0 && NegamaxStrategy.isPast(deadline)) {
+      aborted = true;
+    }
+    if (aborted) {
+      return 0;
+    }
+    if (ply >= emptyCells) {
+      return 0;
+    }
+    for (int column : order) {
+      if (!board.columnIsFull(column) && board.isWinningMove(side, column)) {
+        return WIN_SCORE - ply - 1;
+      }
+    }
+    if (depth == 0) {
+      return evaluator.evaluate(side, other);
+    }
+    for (int column : order) {
+      if (board.columnIsFull(column)) {
+        continue;
+      }
+      int row = play(side, column);
+      int value = -negamax(other, side, -beta, -alpha, depth - 1, ply + 1);
+      undo(row, column);
+      if (aborted) {
+        return 0;
+      }
+      if (value >= beta) {
+        return value;
+      }
+      if (value > alpha) {
+        alpha = value;
+      }
+    }
+    return alpha;
+  }
+
+  private int play(Player player, int column) {
+    int row = board.play(player, column);
+    evaluator.place(player, row, column);
+    return row;
+  }
+
+  private void undo(int row, int column) {
+    board.undo(column);
+    evaluator.remove(row, column);
+  }
+
+  /**
+   * Copies the board of the game onto the board of the search, which is only created again
+   * when the dimensions change from one game to the next.
+   */
+  private void load(Board game) {
+    int rows = game.getRowLength();
+    int columns = game.getColumnLength();
+    int connect = game.getConnectLength();
+    if (board == null || board.getRowLength() != rows || board.getColumnLength() != columns
+        || board.getConnectLength() != connect) {
+      board = Board.of(rows, columns, connect);
+      evaluator = new ThreatEvaluator(rows, columns, connect);
+      order = new int[columns];
+    }
+    Player[][] cells = new Player[rows][columns];
+    game.copyInto(cells);
+    board.load(cells);
+    evaluator.load(board);
+    emptyCells = 0;
+    for (int column = 0 ; column < columns ; column++) {
+      emptyCells += board.topAvailableRow(column) + 1;
+    }
+    int count = 0;
+    for (int i = 0 ; count < columns ; i++) {
+      int column = (columns - 1) / 2 + (i % 2 == 0 ? i / 2 : -(i + 1) / 2);
+      if (column >= 0 && column < columns) {
+        order[count++] = column;
+      }
+    }
+  }
+
+  /**
+   * Gets the counters of the last search.
+   *
+   * @return  value of the variables in interest.
+   */
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  public int getDepthReached() {
+    return depthReached;
+  }
+
+  /**
+   * Returns the score of the move chosen by the last search, from the side of the player who
+   * was to move: above WIN_SCORE - the number of empty cells for a win it has seen, below the
+   * negative of that for a loss, and the evaluation of the position otherwise.
+   */
+  public int getScore() {
+    return score;
+  }
+}
@@ -0,0 +1,126 @@
+package edu.nyu.pqs.connectfour;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This is a parallel version of the search in the style of Lazy SMP. Every thread runs an
+ * iterative deepening search on its own copy of the position, and all of them share one
+ * lock-free transposition table. The helper threads do not coordinate at all: what one of them
+ * learns reaches the others through the table, so the main search finds more cutoffs and gets
+ * deeper within the same time. So that the helpers fill the table with positions the main
+ * search has not reached yet, rather than the ones it is about to reach, every other helper
+ * starts its iterations one ply deeper, and each helper tries the moves of the root in an order
+ * of its own. The move of the main search is played and the helpers are stopped as soon as it
+ * returns.
+ */
+public class LazySmpStrategy implements MoveStrategy {
+
+  private final SharedTranspositionTable table;
+  private final NegamaxStrategy main;
+  private final NegamaxStrategy[] helpers;
+  private final ExecutorService executor;
+
+  /**
+   * Creates the searches of every thread from the same options.
+   *
+   * @param threads         the number of searching threads, at least 1.
+   * @param tableMegabytes  the memory budget of the shared table.
+   * @param builder         the options of every search. Its table options are overridden.
+   */
+  public LazySmpStrategy(int threads, int tableMegabytes, NegamaxStrategy.Builder builder) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1: " + threads);
+    }
+    table = new SharedTranspositionTable(tableMegabytes);
+    builder.sharedTable(table);
+    main = builder.build();
+    helpers = new NegamaxStrategy[threads - 1];
+    for (int i = 0 ; i < helpers.length ; i++) {
+      helpers[i] = builder.build();
+      helpers[i].diversify(i + 1);
+    }
+    executor = helpers.length == 0 ? null : Executors.newFixedThreadPool(helpers.length,
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "connect-four-search");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+  }
+
+  @Override
+  public int chooseColumn(Position position) {
+    List<Future<Integer>> futures = new ArrayList<Future<Integer>>(helpers.length);
+    for (int i = 0 ; i < helpers.length ; i++) {
+      final NegamaxStrategy helper = helpers[i];
+      final Position copy = new Position();
+      copy.copyFrom(position);
+      helper.clearStop();
+      futures.add(executor.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          return helper.chooseColumn(copy);
+        }
+      }));
+    }
+    int column = main.chooseColumn(position);
+    for (NegamaxStrategy helper : helpers) {
+      helper.stop();
+    }
+    try {
+      for (Future<Integer> future : futures) {
+        future.get();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException e) {
+      throw new IllegalStateException("Helper search failed", e.getCause());
+    }
+    return column;
+  }
+
+  /**
+   * Stops the helper threads. The strategy cannot be used afterwards.
+   */
+  public void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Gets the counters of the last search.
+   *
+   * @return  value of the variables in interest.
+   */
+  public long getNodeCount() {
+    long nodes = main.getNodeCount();
+    for (NegamaxStrategy helper : helpers) {
+      nodes += helper.getNodeCount();
+    }
+    return nodes;
+  }
+
+  public int getDepthReached() {
+    return main.getDepthReached();
+  }
+
+  public int getThreads() {
+    return helpers.length + 1;
+  }
+
+  public SharedTranspositionTable getTranspositionTable() {
+    return table;
+  }
+}
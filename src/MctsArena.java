@@ -0,0 +1,202 @@
+package edu.nyu.pqs.connectfour;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This is the storage of the tree of MctsStrategy, as a struct of arrays allocated once with a
+ * fixed capacity, so that growing the tree by millions of nodes allocates no object at all. A
+ * node is an index into the arrays. The children of a node are allocated together, next to each
+ * other, so a node only keeps the index of its first child and their number.
+ *
+ * The fields that the threads change while the tree grows are atomic arrays, which are arrays of
+ * primitives underneath. The first child of a node also tells how far its expansion has gone:
+ * UNEXPANDED until a thread claims the node with EXPANDING, then the index of the children once
+ * they are all set up, so a thread reading the index sees their other fields too.
+ */
+final class MctsArena {
+
+  static final int UNEXPANDED = -1;
+  static final int EXPANDING = -2;
+
+  private final int capacity;
+  private final byte[] columns;
+  private final byte[] terminals;
+  private final int[] childCounts;
+  private final AtomicIntegerArray firstChildren;
+  private final AtomicIntegerArray visits;
+  private final AtomicLongArray values;
+  private final int[] sources;
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * @param capacity  the number of nodes the arena can hold, at least 1.
+   */
+  MctsArena(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+    }
+    this.capacity = capacity;
+    columns = new byte[capacity];
+    terminals = new byte[capacity];
+    childCounts = new int[capacity];
+    firstChildren = new AtomicIntegerArray(capacity);
+    visits = new AtomicIntegerArray(capacity);
+    values = new AtomicLongArray(capacity);
+    sources = new int[capacity];
+  }
+
+  /**
+   * Empties the arena and allocates the root of a new tree.
+   *
+   * @return  the index of the root.
+   */
+  int reset() {
+    size.set(0);
+    return allocate(1);
+  }
+
+  /**
+   * Allocates nodes next to each other, unexpanded and not visited.
+   *
+   * @param count  the number of nodes.
+   * @return  the index of the first node, or -1 if the arena is too full. Once an allocation
+   *          has failed, the arena stays full until it is reset.
+   */
+  int allocate(int count) {
+    if (size.get() >= capacity) {
+      return -1;
+    }
+    int first = size.getAndAdd(count);
+    if (first + count > capacity) {
+      return -1;
+    }
+    for (int node = first ; node < first + count ; node++) {
+      columns[node] = -1;
+      terminals[node] = 0;
+      childCounts[node] = 0;
+      visits.set(node, 0);
+      values.set(node, 0);
+      firstChildren.set(node, UNEXPANDED);
+    }
+    return first;
+  }
+
+  /**
+   * Claims the expansion of a node for the calling thread.
+   *
+   * @return  true if no other thread has claimed it.
+   */
+  boolean claim(int node) {
+    return firstChildren.compareAndSet(node, UNEXPANDED, EXPANDING);
+  }
+
+  /**
+   * Publishes the children of a claimed node, once their fields have been set. The node is left
+   * unexpanded if its children could not be allocated.
+   */
+  void publish(int node, int firstChild, int count) {
+    childCounts[node] = count;
+    firstChildren.set(node, firstChild < 0 ? UNEXPANDED : firstChild);
+  }
+
+  /**
+   * Copies the subtree of a node of another arena into this one, which is emptied first. The
+   * children of a node are copied in breadth-first order, so they stay next to each other.
+   *
+   * @param from  the arena holding the subtree.
+   * @param node  the root of the subtree in that arena.
+   * @return  the index of the root in this arena, 0.
+   */
+  int copySubtree(MctsArena from, int node) {
+    int root = reset();
+    copyNode(from, node, root);
+    for (int next = root ; next < size() ; next++) {
+      int source = sources[next];
+      int first = from.firstChildren.get(source);
+      int count = from.childCounts[source];
+      if (first < 0 || count == 0) {
+        continue;
+      }
+      int copy = allocate(count);
+      if (copy < 0) {
+        break;
+      }
+      for (int i = 0 ; i < count ; i++) {
+        copyNode(from, first + i, copy + i);
+      }
+      childCounts[next] = count;
+      firstChildren.set(next, copy);
+    }
+    return root;
+  }
+
+  /**
+   * Copies the fields of a node of another arena, remembering where it comes from so that its
+   * children can be copied in turn.
+   */
+  private void copyNode(MctsArena from, int source, int node) {
+    sources[node] = source;
+    columns[node] = from.columns[source];
+    terminals[node] = from.terminals[source];
+    visits.set(node, from.visits.get(source));
+    values.set(node, from.values.get(source));
+  }
+
+  /**
+   * Gets and sets the fields of a node.
+   */
+  int getColumn(int node) {
+    return columns[node];
+  }
+
+  void setColumn(int node, int column) {
+    columns[node] = (byte) column;
+  }
+
+  int getTerminal(int node) {
+    return terminals[node];
+  }
+
+  void setTerminal(int node, int terminal) {
+    terminals[node] = (byte) terminal;
+  }
+
+  int getFirstChild(int node) {
+    return firstChildren.get(node);
+  }
+
+  int getChildCount(int node) {
+    return childCounts[node];
+  }
+
+  int getVisits(int node) {
+    return visits.get(node);
+  }
+
+  void addVisits(int node, int delta) {
+    visits.getAndAdd(node, delta);
+  }
+
+  long getValue(int node) {
+    return values.get(node);
+  }
+
+  void addValue(int node, long delta) {
+    values.getAndAdd(node, delta);
+  }
+
+  /**
+   * Gets the occupation of the arena.
+   *
+   * @return  value of the variables in interest.
+   */
+  int size() {
+    return Math.min(size.get(), capacity);
+  }
+
+  int capacity() {
+    return capacity;
+  }
+}
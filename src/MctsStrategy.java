@@ -0,0 +1,662 @@
+package edu.nyu.pqs.connectfour;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This is a Monte Carlo tree search engine for the AI, an alternative to the depth-limited
+ * search that needs no evaluation of the positions and plays on boards of any size. Every
+ * iteration walks down the tree along the child of the best UCT score, the rate of wins of the
+ * child plus the exploration constant times sqrt(ln(visits of the parent) / visits of the child),
+ * grows the tree by the children of the leaf it reaches, and finishes the game from there with a
+ * playout. The outcome of the playout is added to every node on the way back up. The column
+ * visited the most from the root is played.
+ *
+ * The playouts run on a board of each thread's own, loaded from the board of the game when the
+ * search starts and taken back move by move after every playout, so the board of the model is
+ * never touched. A heuristic playout plays a winning column if there is one and blocks the
+ * opponent's otherwise, which is far more telling than a purely random one for little more time.
+ *
+ * The tree is kept in an MctsArena, a struct of arrays allocated once, so a search allocates
+ * no node objects however large the tree grows. Once the arena is full the tree stops growing and
+ * the remaining iterations only play out from its leaves. The subtree of the position the game
+ * has reached since the last move, after the move chosen and the reply of the opponent, is
+ * copied into a second arena and searched further, and the two arenas swap roles at every move.
+ * The number of nodes allocated, the occupancy of the arena and the time spent collecting
+ * garbage during the last move are kept for monitoring, and printed move by move by main(),
+ * which plays a game between two instances of the strategy.
+ *
+ * The threads grow one shared tree. A thread adds a virtual loss to every node it walks through,
+ * a visit without a win, which it turns into the real outcome on the way back, so the threads
+ * walking down at the same time spread over different branches instead of all playing out the
+ * most promising one. The search stops when its time budget or its number of iterations has been
+ * used up, so the strength of the AI is traded against its time by the budget alone.
+ *
+ * Usage: MctsStrategy [iterations [arenaNodes]]
+ */
+public class MctsStrategy implements BoardStrategy {
+
+  static final int VIRTUAL_LOSS = 1;
+  private static final int TIME_CHECK_INTERVAL = 16;
+  private static final int NOT_TERMINAL = 0;
+  private static final int WON = 1;
+  private static final int DRAWN = 2;
+
+  private final double exploration;
+  private final long timeBudgetNanos;
+  private final long maxIterations;
+  private final boolean heuristicPlayouts;
+  private final int threads;
+  private final ExecutorService executor;
+  private SplittableRandom random;
+  private volatile long deadline;
+  private final AtomicLong iterations = new AtomicLong();
+  private MctsArena arena;
+  private MctsArena spare;
+  private int root;
+  private Player[][] lastCells;
+  private Player lastPlayer;
+  private int lastColumn;
+  private int reusedNodes;
+  private int allocatedNodes;
+  private long gcMillis;
+
+  /**
+   * This class is the builder for the strategy. Every option has a default, so only the budgets
+   * that matter to the caller have to be set.
+   */
+  public static class Builder {
+    private double exploration = Math.sqrt(2);
+    private long timeBudgetMillis = 250;
+    private long maxIterations = Long.MAX_VALUE;
+    private boolean heuristicPlayouts = true;
+    private int threads = 1;
+    private int arenaNodes = 1 << 19;
+    private Long seed = null;
+
+    /**
+     * Sets the exploration constant of the UCT score.
+     *
+     * @param exploration  the constant, not negative. The higher, the wider the search.
+     */
+    public Builder explorationConstant(double exploration) {
+      if (!(exploration >= 0)) {
+        throw new IllegalArgumentException("exploration must not be negative: " + exploration);
+      }
+      this.exploration = exploration;
+      return this;
+    }
+
+    /**
+     * Limits the wall-clock time spent on a single move.
+     *
+     * @param timeBudgetMillis  the time in milliseconds, or 0 for no limit.
+     */
+    public Builder timeBudgetMillis(long timeBudgetMillis) {
+      if (timeBudgetMillis < 0) {
+        throw new IllegalArgumentException("timeBudgetMillis is negative: " + timeBudgetMillis);
+      }
+      this.timeBudgetMillis = timeBudgetMillis;
+      return this;
+    }
+
+    /**
+     * Limits the number of iterations, over all the threads, for a single move.
+     *
+     * @param maxIterations  the number of iterations, at least 1.
+     */
+    public Builder maxIterations(long maxIterations) {
+      if (maxIterations < 1) {
+        throw new IllegalArgumentException("maxIterations must be at least 1: "
+            + maxIterations);
+      }
+      this.maxIterations = maxIterations;
+      return this;
+    }
+
+    /**
+     * Chooses between heuristic playouts and purely random ones.
+     *
+     * @param heuristicPlayouts  whether the playouts take wins and block losses, true by default.
+     */
+    public Builder heuristicPlayouts(boolean heuristicPlayouts) {
+      this.heuristicPlayouts = heuristicPlayouts;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads growing the tree.
+     *
+     * @param threads  the number of threads, at least 1.
+     */
+    public Builder threads(int threads) {
+      if (threads < 1) {
+        throw new IllegalArgumentException("threads must be at least 1: " + threads);
+      }
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Sets the number of nodes each of the two arenas of the tree can hold.
+     *
+     * @param arenaNodes  the number of nodes, at least 1.
+     */
+    public Builder arenaNodes(int arenaNodes) {
+      if (arenaNodes < 1) {
+        throw new IllegalArgumentException("arenaNodes must be at least 1: " + arenaNodes);
+      }
+      this.arenaNodes = arenaNodes;
+      return this;
+    }
+
+    /**
+     * Seeds the playouts, so that a search on a single thread with a budget of iterations
+     * rather than of time plays the same moves again.
+     *
+     * @param seed  the seed of the playouts.
+     */
+    public Builder seed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    /**
+     * Build the strategy with the corresponding options.
+     *
+     * @return  MctsStrategy that has been built.
+     */
+    public MctsStrategy build() {
+      if (timeBudgetMillis == 0 && maxIterations == Long.MAX_VALUE) {
+        throw new IllegalStateException("the search needs a budget of time or of iterations");
+      }
+      return new MctsStrategy(this);
+    }
+  }
+
+  private MctsStrategy(Builder builder) {
+    exploration = builder.exploration;
+    timeBudgetNanos = builder.timeBudgetMillis == 0
+        ? Long.MAX_VALUE : builder.timeBudgetMillis * 1000000L;
+    maxIterations = builder.maxIterations;
+    heuristicPlayouts = builder.heuristicPlayouts;
+    threads = builder.threads;
+    arena = new MctsArena(builder.arenaNodes);
+    spare = new MctsArena(builder.arenaNodes);
+    random = builder.seed == null ? new SplittableRandom() : new SplittableRandom(builder.seed);
+    executor = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1,
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "connect-four-mcts");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+  }
+
+  @Override
+  public int chooseColumn(Position position) {
+    BitBoard board = new BitBoard();
+    position.copyInto(board, Player.AI, Player.ONE);
+    return chooseColumn(board, Player.AI, Player.ONE);
+  }
+
+  /**
+   * Chooses the column to be played by the player to move. The value of a node of the tree
+   * counts half-points for the player who has played the move into it, 2 for a win and 1 for a
+   * draw, and its visits include the virtual losses of the threads walking through it.
+   */
+  @Override
+  public int chooseColumn(Board board, Player player, Player opponent) {
+    long gcBefore = collectionMillis();
+    iterations.set(0);
+    allocatedNodes = 0;
+    final Player[][] cells = new Player[board.getRowLength()][board.getColumnLength()];
+    board.copyInto(cells);
+    for (int column = 0 ; column < board.getColumnLength() ; column++) {
+      if (!board.columnIsFull(column) && board.isWinningMove(player, column)) {
+        lastCells = null;
+        reusedNodes = 0;
+        root = arena.reset();
+        gcMillis = collectionMillis() - gcBefore;
+        return column;
+      }
+    }
+    reusedNodes = reuseTree(cells, player);
+    deadline = System.nanoTime() + Math.min(timeBudgetNanos, Long.MAX_VALUE / 2);
+
+    List<Future<Void>> futures = new ArrayList<Future<Void>>(threads - 1);
+    for (int i = 1 ; i < threads ; i++) {
+      final Worker helper = new Worker(board, cells, player, opponent, random.split());
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          helper.search();
+          return null;
+        }
+      }));
+    }
+    new Worker(board, cells, player, opponent, random.split()).search();
+    try {
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException e) {
+      throw new IllegalStateException("Helper search failed", e.getCause());
+    }
+    int column = mostVisitedColumn(board);
+    lastCells = cells;
+    lastPlayer = player;
+    lastColumn = column;
+    allocatedNodes = arena.size() - reusedNodes;
+    gcMillis = collectionMillis() - gcBefore;
+    return column;
+  }
+
+  /**
+   * Makes the root of the tree the node of the position of the board, if it is the position
+   * of the last search after the column chosen and one reply of the opponent, and that node has
+   * been expanded. Its subtree is copied into the spare arena, which then becomes the arena of
+   * the tree. Otherwise the search starts from a new tree.
+   *
+   * @return  the number of nodes kept from the last search.
+   */
+  private int reuseTree(Player[][] cells, Player player) {
+    int node = lastCells == null || player != lastPlayer || cells.length != lastCells.length
+        || cells[0].length != lastCells[0].length ? -1 : child(root, lastColumn);
+    int playerRow = -1;
+    int replyRow = -1;
+    int reply = -1;
+    for (int row = 0 ; row < cells.length && node >= 0 ; row++) {
+      for (int column = 0 ; column < cells[row].length ; column++) {
+        if (cells[row][column] == lastCells[row][column]) {
+          continue;
+        }
+        if (lastCells[row][column] == Player.EMPTY && cells[row][column] == player
+            && column == lastColumn && playerRow < 0) {
+          playerRow = row;
+        }
+        else if (lastCells[row][column] == Player.EMPTY && cells[row][column] != player
+            && replyRow < 0) {
+          replyRow = row;
+          reply = column;
+        }
+        else {
+          node = -1;
+        }
+      }
+    }
+    if (playerRow < 0 || replyRow < 0 || reply == lastColumn && replyRow > playerRow) {
+      node = -1;
+    }
+    node = node < 0 ? -1 : child(node, reply);
+    if (node < 0) {
+      root = arena.reset();
+      return 0;
+    }
+    root = spare.copySubtree(arena, node);
+    MctsArena swap = arena;
+    arena = spare;
+    spare = swap;
+    return arena.size();
+  }
+
+  /**
+   * Returns the child of the node for the column, -1 if the node has not been expanded.
+   */
+  private int child(int node, int column) {
+    int first = arena.getFirstChild(node);
+    for (int i = 0 ; first >= 0 && i < arena.getChildCount(node) ; i++) {
+      if (arena.getColumn(first + i) == column) {
+        return first + i;
+      }
+    }
+    return -1;
+  }
+
+  private static long collectionMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(0, collector.getCollectionTime());
+    }
+    return millis;
+  }
+
+  /**
+   * This class is a thread of the search, with its own board and its own random playouts.
+   */
+  private class Worker {
+    private final Board board;
+    private final Player player;
+    private final Player opponent;
+    private final SplittableRandom random;
+    private final int[] moves;
+    private final int[] playable;
+    private final int[] path;
+    private final int emptyCells;
+
+    Worker(Board game, Player[][] cells, Player player, Player opponent,
+        SplittableRandom random) {
+      board = Board.of(game.getRowLength(), game.getColumnLength(), game.getConnectLength());
+      board.load(cells);
+      this.player = player;
+      this.opponent = opponent;
+      this.random = random;
+      int size = board.getRowLength() * board.getColumnLength();
+      int empty = 0;
+      for (int column = 0 ; column < board.getColumnLength() ; column++) {
+        empty += board.topAvailableRow(column) + 1;
+      }
+      emptyCells = empty;
+      moves = new int[size];
+      playable = new int[board.getColumnLength()];
+      path = new int[size + 1];
+    }
+
+    void search() {
+      for (long done = iterations.getAndIncrement() ; done < maxIterations ;
+          done = iterations.getAndIncrement()) {
+        if (done % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - deadline >= 0) {
+          iterations.decrementAndGet();
+          break;
+        }
+        iterate();
+      }
+    }
+
+    /**
+     * Walks down the tree to a leaf, grows it, plays the game out and backs the outcome up.
+     */
+    private void iterate() {
+      int node = root;
+      arena.addVisits(node, VIRTUAL_LOSS);
+      path[0] = node;
+      int depth = 0;
+      while (arena.getTerminal(node) == NOT_TERMINAL && depth < emptyCells) {
+        int first = arena.getFirstChild(node);
+        boolean leaf = first < 0;
+        if (leaf) {
+          first = expand(node, depth);
+          if (first < 0) {
+            break;
+          }
+        }
+        node = select(first, arena.getChildCount(node), arena.getVisits(node));
+        arena.addVisits(node, VIRTUAL_LOSS);
+        int column = arena.getColumn(node);
+        board.play(sideToMove(depth), column);
+        moves[depth++] = column;
+        path[depth] = node;
+        if (leaf) {
+          break;
+        }
+      }
+
+      Player winner;
+      int played = depth;
+      int terminal = arena.getTerminal(node);
+      if (terminal == WON) {
+        winner = sideToMove(depth - 1);
+      }
+      else if (terminal == DRAWN || depth >= emptyCells) {
+        winner = Player.EMPTY;
+      }
+      else {
+        winner = Player.EMPTY;
+        while (played < emptyCells) {
+          Player side = sideToMove(played);
+          int column = playoutColumn(side, sideToMove(played + 1));
+          boolean wins = board.isWinningMove(side, column);
+          board.play(side, column);
+          moves[played++] = column;
+          if (wins) {
+            winner = side;
+            break;
+          }
+        }
+      }
+      while (played > 0) {
+        board.undo(moves[--played]);
+      }
+
+      for (int i = depth ; i >= 0 ; i--) {
+        Player mover = sideToMove(i - 1);
+        arena.addVisits(path[i], 1 - VIRTUAL_LOSS);
+        if (winner == mover) {
+          arena.addValue(path[i], 2);
+        }
+        else if (winner == Player.EMPTY) {
+          arena.addValue(path[i], 1);
+        }
+      }
+    }
+
+    /**
+     * Adds the children of the node, for every column that is not full on the board of the
+     * worker.
+     *
+     * @return  the index of the first child, or -1 if another thread is expanding the node or
+     *          the arena is full, in which case the game is played out from the node.
+     */
+    private int expand(int node, int depth) {
+      if (!arena.claim(node)) {
+        return arena.getFirstChild(node);
+      }
+      Player side = sideToMove(depth);
+      int count = 0;
+      for (int column = 0 ; column < board.getColumnLength() ; column++) {
+        if (!board.columnIsFull(column)) {
+          count++;
+        }
+      }
+      int first = arena.allocate(count);
+      if (first < 0) {
+        arena.publish(node, -1, 0);
+        return -1;
+      }
+      int child = first;
+      for (int column = 0 ; column < board.getColumnLength() ; column++) {
+        if (!board.columnIsFull(column)) {
+          arena.setColumn(child, column);
+          arena.setTerminal(child, board.isWinningMove(side, column) ? WON
+              : depth + 1 == emptyCells ? DRAWN : NOT_TERMINAL);
+          child++;
+        }
+      }
+      arena.publish(node, first, count);
+      return first;
+    }
+
+    /**
+     * Picks the column of a playout: a winning column, otherwise a column where the opponent
+     * would win, otherwise a column at random, or always at random for random playouts.
+     */
+    private int playoutColumn(Player side, Player other) {
+      int count = 0;
+      for (int column = 0 ; column < board.getColumnLength() ; column++) {
+        if (!board.columnIsFull(column)) {
+          playable[count++] = column;
+        }
+      }
+      if (heuristicPlayouts) {
+        for (int i = 0 ; i < count ; i++) {
+          if (board.isWinningMove(side, playable[i])) {
+            return playable[i];
+          }
+        }
+        for (int i = 0 ; i < count ; i++) {
+          if (board.isWinningMove(other, playable[i])) {
+            return playable[i];
+          }
+        }
+      }
+      return playable[random.nextInt(count)];
+    }
+
+    /**
+     * Returns the player to move after the given number of moves from the root.
+     */
+    private Player sideToMove(int depth) {
+      return (depth & 1) == 0 ? player : opponent;
+    }
+  }
+
+  /**
+   * Picks the child of the best UCT score, or the first child not visited yet.
+   */
+  private int select(int first, int count, int parentVisits) {
+    double logVisits = Math.log(Math.max(1, parentVisits));
+    int best = first;
+    double bestScore = Double.NEGATIVE_INFINITY;
+    for (int child = first ; child < first + count ; child++) {
+      int visits = arena.getVisits(child);
+      if (visits == 0) {
+        return child;
+      }
+      double score = arena.getValue(child) / (2.0 * visits)
+          + exploration * Math.sqrt(logVisits / visits);
+      if (score > bestScore) {
+        bestScore = score;
+        best = child;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns the column of the child of the root visited the most, or the first column that
+   * is not full if the tree has not grown at all.
+   */
+  private int mostVisitedColumn(Board board) {
+    int first = arena.getFirstChild(root);
+    if (first < 0) {
+      for (int column = 0 ; column < board.getColumnLength() ; column++) {
+        if (!board.columnIsFull(column)) {
+          return column;
+        }
+      }
+      throw new IllegalStateException("no column is playable");
+    }
+    int best = first;
+    for (int child = first ; child < first + arena.getChildCount(root) ; child++) {
+      if (arena.getVisits(child) > arena.getVisits(best)) {
+        best = child;
+      }
+    }
+    return arena.getColumn(best);
+  }
+
+  /**
+   * Starts the playouts over from the given seed.
+   *
+   * @param seed  the seed of the playouts.
+   */
+  public void setSeed(long seed) {
+    random = new SplittableRandom(seed);
+  }
+
+  /**
+   * Stops the helper threads. The strategy cannot be used afterwards.
+   */
+  public void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Gets the counters of the last search.
+   *
+   * @return  value of the variables in interest.
+   */
+  public long getIterations() {
+    return Math.min(iterations.get(), maxIterations);
+  }
+
+  public long getNodeCount() {
+    return arena.size();
+  }
+
+  public int getNodesAllocated() {
+    return allocatedNodes;
+  }
+
+  public int getReusedNodes() {
+    return reusedNodes;
+  }
+
+  public double getArenaOccupancy() {
+    return (double) arena.size() / arena.capacity();
+  }
+
+  public long getGcMillis() {
+    return gcMillis;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Returns the number of visits of a child of the root in the last search.
+   *
+   * @param column  the column of the child.
+   * @return  the visits, 0 if the column was not searched.
+   */
+  public int getVisits(int column) {
+    int child = child(root, column);
+    return child < 0 ? 0 : arena.getVisits(child);
+  }
+
+  /**
+   * Returns the number of visits of the root in the last search, those kept from the tree of
+   * the search before included. Every iteration visits the root, even one that stops there.
+   *
+   * @return  the visits of the root.
+   */
+  public int getRootVisits() {
+    return arena.getVisits(root);
+  }
+
+  public static void main(String[] args) {
+    long iterations = args.length > 0 ? Long.parseLong(args[0]) : 200000;
+    int arenaNodes = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 19;
+    MctsStrategy[] strategies = new MctsStrategy[2];
+    for (int i = 0 ; i < strategies.length ; i++) {
+      strategies[i] = new Builder().timeBudgetMillis(0).maxIterations(iterations)
+          .arenaNodes(arenaNodes).build();
+    }
+    Board board = Board.of(Position.ROW_LENGTH, Position.COLUMN_LENGTH, 4);
+    Player[] players = {Player.ONE, Player.AI};
+    System.out.println("move player column allocated reused occupancy gcMillis");
+    for (int move = 0 ; !board.isFull() ; move++) {
+      Player player = players[move & 1];
+      MctsStrategy strategy = strategies[move & 1];
+      int column = strategy.chooseColumn(board, player, players[(move + 1) & 1]);
+      System.out.printf("%4d %-6s %6d %9d %6d %8.2f%% %8d%n", move + 1, player.name(), column,
+          strategy.getNodesAllocated(), strategy.getReusedNodes(),
+          strategy.getArenaOccupancy() * 100, strategy.getGcMillis());
+      board.play(player, column);
+      if (board.hasWon(player)) {
+        System.out.println(player + " wins");
+        return;
+      }
+    }
+    System.out.println("Draw");
+  }
+}
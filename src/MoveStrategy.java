@@ -0,0 +1,17 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is an interface for the source of the moves played by the AI in single-player mode.
+ * The model hands the strategy a copy of the board, so a strategy may play on the position
+ * freely while it looks for a move.
+ */
+public interface MoveStrategy {
+
+  /**
+   * Chooses the column to be played by the player to move.
+   *
+   * @param position  the board as seen by the player to move. At least one column is not full.
+   * @return  the index of a column that is not full.
+   */
+  int chooseColumn(Position position);
+}
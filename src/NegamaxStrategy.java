@@ -0,0 +1,441 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is a search engine for the AI. It runs a negamax search with alpha-beta pruning over
+ * copies of the board, trying the center columns first since they take part in the most lines.
+ * The search is deepened one ply at a time until it runs out of its time or node budget, and the
+ * best move of the last completed depth is played, so a move is always returned in bounded time.
+ *
+ * Scores follow the number of discs left: a win with the k-th disc of the player to move is
+ * worth (SIZE+1)/2 - k, a loss the negative of that, and 0 means a draw or that the search has
+ * not seen the end of the game within its depth. An instance keeps the counters of its last
+ * search, so it should not be shared by games running concurrently.
+ *
+ * A position and its mirror image share the entry of the transposition table stored under
+ * their canonical key, with the best move of the canonical position, so the table holds about
+ * twice as many positions and the search finds the entries of the mirrored lines too.
+ */
+public class NegamaxStrategy implements MoveStrategy {
+
+  static final int[] COLUMN_ORDER = centerFirstOrder();
+  private static final int TIME_CHECK_INTERVAL = 1024;
+
+  private final int maxDepth;
+  private final long timeBudgetNanos;
+  private final long nodeBudget;
+  private final int tableMegabytes;
+  private ScoreTable table;
+  private long deadline;
+  private boolean aborted;
+  private volatile boolean stopRequested;
+  private long nodeCount;
+  private long tableHits;
+  private int depthReached;
+  private int score;
+  private int firstDepth = 1;
+  private int rootRotation;
+
+  /**
+   * This class is the builder for the strategy. Every option has a default, so only the budgets
+   * that matter to the caller have to be set.
+   */
+  public static class Builder {
+    private int maxDepth = Position.SIZE;
+    private long timeBudgetMillis = 250;
+    private long nodeBudget = Long.MAX_VALUE;
+    private int tableMegabytes = 16;
+    private SharedTranspositionTable sharedTable = null;
+
+    /**
+     * Limits the number of plies searched ahead.
+     *
+     * @param maxDepth  the deepest iteration to be searched, at least 1.
+     */
+    public Builder maxDepth(int maxDepth) {
+      if (maxDepth < 1) {
+        throw new IllegalArgumentException("maxDepth must be at least 1: " + maxDepth);
+      }
+      this.maxDepth = maxDepth;
+      return this;
+    }
+
+    /**
+     * Limits the wall-clock time spent on a single move.
+     *
+     * @param timeBudgetMillis  the time in milliseconds, or 0 for no limit.
+     */
+    public Builder timeBudgetMillis(long timeBudgetMillis) {
+      if (timeBudgetMillis < 0) {
+        throw new IllegalArgumentException("timeBudgetMillis is negative: " + timeBudgetMillis);
+      }
+      this.timeBudgetMillis = timeBudgetMillis;
+      return this;
+    }
+
+    /**
+     * Limits the number of positions visited for a single move.
+     *
+     * @param nodeBudget  the number of positions, at least 1.
+     */
+    public Builder nodeBudget(long nodeBudget) {
+      if (nodeBudget < 1) {
+        throw new IllegalArgumentException("nodeBudget must be at least 1: " + nodeBudget);
+      }
+      this.nodeBudget = nodeBudget;
+      return this;
+    }
+
+    /**
+     * Sets the memory budget of the transposition table, which is kept from one move to the next.
+     *
+     * @param tableMegabytes  the budget in megabytes, or 0 to search without a table.
+     */
+    public Builder transpositionTableMegabytes(int tableMegabytes) {
+      if (tableMegabytes < 0) {
+        throw new IllegalArgumentException("tableMegabytes is negative: " + tableMegabytes);
+      }
+      this.tableMegabytes = tableMegabytes;
+      return this;
+    }
+
+    /**
+     * Makes the strategy search with a table that other strategies may be using at the same
+     * time, instead of a table of its own.
+     *
+     * @param sharedTable  the table shared by the searching threads.
+     */
+    public Builder sharedTable(SharedTranspositionTable sharedTable) {
+      this.sharedTable = sharedTable;
+      return this;
+    }
+
+    /**
+     * Build the strategy with the corresponding options.
+     *
+     * @return  NegamaxStrategy that has been built.
+     */
+    public NegamaxStrategy build() {
+      return new NegamaxStrategy(this);
+    }
+  }
+
+  NegamaxStrategy(Builder builder) {
+    maxDepth = builder.maxDepth;
+    timeBudgetNanos = builder.timeBudgetMillis == 0
+        ? Long.MAX_VALUE : builder.timeBudgetMillis * 1000000L;
+    nodeBudget = builder.nodeBudget;
+    tableMegabytes = builder.tableMegabytes;
+    table = builder.sharedTable;
+  }
+
+  @Override
+  public int chooseColumn(Position position) {
+    nodeCount = 0;
+    tableHits = 0;
+    depthReached = 0;
+    score = 0;
+    aborted = false;
+    allocateTable();
+    deadline = deadlineAfter(timeBudgetNanos);
+
+    int[] order = new int[COLUMN_ORDER.length];
+    for (int i = 0 ; i < order.length ; i++) {
+      order[i] = COLUMN_ORDER[(i + rootRotation) % order.length];
+    }
+    int bestColumn = -1;
+    for (int column : order) {
+      if (position.canPlay(column)) {
+        if (position.isWinningMove(column)) {
+          score = (Position.SIZE + 1 - position.getMoves()) / 2;
+          return column;
+        }
+        if (bestColumn == -1) {
+          bestColumn = column;
+        }
+      }
+    }
+
+    int depthLimit = Math.min(maxDepth, Position.SIZE - position.getMoves());
+    for (int depth = Math.min(firstDepth, depthLimit) ; depth <= depthLimit ; depth++) {
+      int alpha = -Position.SIZE;
+      int bestScore = Integer.MIN_VALUE;
+      int bestOfDepth = -1;
+      for (int column : order) {
+        if (!position.canPlay(column)) {
+          continue;
+        }
+        position.play(column);
+        int value = -negamax(position, -Position.SIZE, -alpha, depth - 1);
+        position.undo(column);
+        if (aborted) {
+          break;
+        }
+        if (value > bestScore) {
+          bestScore = value;
+          bestOfDepth = column;
+        }
+        if (value > alpha) {
+          alpha = value;
+        }
+      }
+      if (aborted) {
+        break;
+      }
+      bestColumn = bestOfDepth;
+      depthReached = depth;
+      score = bestScore;
+      moveToFront(order, bestColumn);
+      if (bestScore != 0) {
+        break;
+      }
+    }
+    return bestColumn;
+  }
+
+  /**
+   * Runs a single search of a fixed depth that has to end by the given deadline. This is for
+   * the strategies that drive the iterations themselves and split them among threads; the
+   * counters are reset by every call.
+   *
+   * @param position  the position to be scored, restored before returning.
+   * @param alpha     the score the player to move is already guaranteed.
+   * @param beta      the score the opponent is already guaranteed, negated.
+   * @param depth     the number of plies to search.
+   * @param deadline  the value of System.nanoTime() at which the search gives up.
+   * @return  the score of the position, meaningless if isAborted() returns true.
+   */
+  int search(Position position, int alpha, int beta, int depth, long deadline) {
+    nodeCount = 0;
+    tableHits = 0;
+    aborted = false;
+    allocateTable();
+    this.deadline = deadline;
+    return negamax(position, alpha, beta, depth);
+  }
+
+  /**
+   * Checks whether the last search ran out of its budget or was stopped.
+   */
+  boolean isAborted() {
+    return aborted;
+  }
+
+  /**
+   * Returns the value of System.nanoTime() once the budget has passed, without overflowing.
+   *
+   * @param budgetNanos  the budget in nanoseconds, Long.MAX_VALUE for no limit.
+   */
+  static long deadlineAfter(long budgetNanos) {
+    long now = System.nanoTime();
+    return budgetNanos > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + budgetNanos;
+  }
+
+  /**
+   * Checks whether the deadline returned by deadlineAfter() has passed.
+   */
+  static boolean isPast(long deadline) {
+    return deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0;
+  }
+
+  private void allocateTable() {
+    if (table == null && tableMegabytes > 0) {
+      table = new TranspositionTable(tableMegabytes);
+    }
+  }
+
+  /**
+   * Scores the position for the player to move, looking at most depth plies ahead.
+   *
+   * @param position  the position to be scored, restored before returning.
+   * @param alpha     the score the player to move is already guaranteed.
+   * @param beta      the score the opponent is already guaranteed, negated.
+   * @param depth     the number of plies left to search.
+   * @return  the score of the position, or a bound of it outside of (alpha, beta).
+   */
+  int negamax(Position position, int alpha, int beta, int depth) {
+    if (aborted) {
+      return 0;
+    }
+    if (++nodeCount >= nodeBudget || (nodeCount % TIME_CHECK_INTERVAL == 0
+        && (stopRequested || isPast(deadline)))) {
+      aborted = true;
+      return 0;
+    }
+    int moves = position.getMoves();
+    if (moves >= Position.SIZE) {
+      return 0;
+    }
+    for (int column = 0 ; column < Position.COLUMN_LENGTH ; column++) {
+      if (position.canPlay(column) && position.isWinningMove(column)) {
+        return (Position.SIZE + 1 - moves) / 2;
+      }
+    }
+    if (depth == 0) {
+      return 0;
+    }
+    int max = (Position.SIZE - 1 - moves) / 2;
+    if (beta > max) {
+      beta = max;
+      if (alpha >= beta) {
+        return beta;
+      }
+    }
+
+    int alphaOrigin = alpha;
+    int tableMove = -1;
+    long key = position.key();
+    long mirroredKey = position.mirroredKey();
+    boolean mirrored = mirroredKey < key;
+    if (mirrored) {
+      key = mirroredKey;
+    }
+    if (table != null) {
+      int entry = table.probe(key);
+      if (entry != TranspositionTable.NOT_FOUND) {
+        tableHits++;
+        tableMove = mirror(TranspositionTable.moveOf(entry), mirrored);
+        if (TranspositionTable.depthOf(entry) >= depth) {
+          int value = TranspositionTable.scoreOf(entry);
+          int flag = TranspositionTable.flagOf(entry);
+          if (flag == TranspositionTable.EXACT) {
+            return value;
+          }
+          if (flag == TranspositionTable.LOWER_BOUND && value > alpha) {
+            alpha = value;
+          }
+          else if (flag == TranspositionTable.UPPER_BOUND && value < beta) {
+            beta = value;
+          }
+          if (alpha >= beta) {
+            return value;
+          }
+        }
+      }
+    }
+
+    int bestMove = -1;
+    int bestScore = Integer.MIN_VALUE;
+    for (int i = -1 ; i < COLUMN_ORDER.length ; i++) {
+      int column = i < 0 ? tableMove : COLUMN_ORDER[i];
+      if (column < 0 || (i >= 0 && column == tableMove) || !position.canPlay(column)) {
+        continue;
+      }
+      position.play(column);
+      int value = -negamax(position, -beta, -alpha, depth - 1);
+      position.undo(column);
+      if (aborted) {
+        return 0;
+      }
+      if (value > bestScore) {
+        bestScore = value;
+        bestMove = column;
+      }
+      if (value >= beta) {
+        store(key, value, TranspositionTable.LOWER_BOUND, depth, mirror(column, mirrored));
+        return value;
+      }
+      if (value > alpha) {
+        alpha = value;
+      }
+    }
+    store(key, alpha, alpha > alphaOrigin ? TranspositionTable.EXACT
+        : TranspositionTable.UPPER_BOUND, depth, mirror(bestMove, mirrored));
+    return alpha;
+  }
+
+  /**
+   * Maps a column between the position and the canonical position its entry is stored under.
+   */
+  private static int mirror(int column, boolean mirrored) {
+    return mirrored && column >= 0 ? Position.mirrorColumn(column) : column;
+  }
+
+  private void store(long key, int value, int flag, int depth, int move) {
+    if (table != null) {
+      table.store(key, value, flag, depth, move);
+    }
+  }
+
+  /**
+   * Asks a search running on another thread to stop as soon as possible. The search still
+   * returns the best move of its last completed depth. Every later search stops at once too,
+   * until clearStop() is called.
+   */
+  void stop() {
+    stopRequested = true;
+  }
+
+  /**
+   * Makes the strategy search differently from the main search of a Lazy SMP search, so that the
+   * helpers do not walk the same tree in lockstep: every odd helper starts its iterations one
+   * ply deeper, and every helper tries the moves of the root in the center-first order rotated
+   * by its number, until the best move of a depth is moved to the front.
+   *
+   * @param helper  the number of the helper, from 1. The main search is 0.
+   */
+  void diversify(int helper) {
+    firstDepth = 1 + (helper & 1);
+    rootRotation = helper % COLUMN_ORDER.length;
+  }
+
+  /**
+   * Clears a stop request so that the strategy can search again. Must be called before the
+   * search is handed to the thread that runs it.
+   */
+  void clearStop() {
+    stopRequested = false;
+  }
+
+  /**
+   * Gets the counters of the last search.
+   *
+   * @return  value of the variables in interest.
+   */
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  public int getDepthReached() {
+    return depthReached;
+  }
+
+  /**
+   * Returns the score of the move chosen by the last search, from the side of the player who
+   * was to move. 0 if the search did not see the end of the game.
+   */
+  public int getScore() {
+    return score;
+  }
+
+  public long getTableHits() {
+    return tableHits;
+  }
+
+  /**
+   * Returns the transposition table, which is only allocated by the first search.
+   *
+   * @return  the table, or null if the strategy searches without one or has not searched yet.
+   */
+  public ScoreTable getTranspositionTable() {
+    return table;
+  }
+
+  static void moveToFront(int[] order, int column) {
+    int index = 0;
+    while (order[index] != column) {
+      index++;
+    }
+    for ( ; index > 0 ; index--) {
+      order[index] = order[index - 1];
+    }
+    order[0] = column;
+  }
+
+  private static int[] centerFirstOrder() {
+    int[] order = new int[Position.COLUMN_LENGTH];
+    for (int i = 0 ; i < order.length ; i++) {
+      order[i] = Position.COLUMN_LENGTH / 2 + (1 - 2 * (i % 2)) * (i + 1) / 2;
+    }
+    return order;
+  }
+}
@@ -0,0 +1,30 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is the original AI of the game. If the next move can result in a win, that move is
+ * played. Otherwise, a disc is placed onto a random column that has not already been filled,
+ * picked as by RandomStrategy.
+ */
+public class OnePlyStrategy extends RandomStrategy {
+
+  public OnePlyStrategy() {
+    super();
+  }
+
+  /**
+   * @param seed  the seed of the random columns.
+   */
+  public OnePlyStrategy(long seed) {
+    super(seed);
+  }
+
+  @Override
+  public int chooseColumn(Position position) {
+    for (int column = 0 ; column < Position.COLUMN_LENGTH ; column++) {
+      if (position.canPlay(column) && position.isWinningMove(column)) {
+        return column;
+      }
+    }
+    return randomColumn(position);
+  }
+}
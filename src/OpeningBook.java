@@ -0,0 +1,165 @@
+package edu.nyu.pqs.connectfour;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This is a book of the best moves of the opening positions, stored in a file generated offline
+ * by OpeningBookGenerator. The file is a short header followed by one long per position, sorted
+ * by the canonical key of the position (see Position.canonicalKey()), which a position shares
+ * with its mirror image: the key in the high bits, then the score and the best move of the
+ * canonical position. The file is memory-mapped and searched in place with a binary search,
+ * so opening a book reads nothing up front and a lookup touches a few pages at most.
+ */
+public final class OpeningBook {
+
+  public static final long NOT_FOUND = -1L;
+  static final int MAGIC = 0x43344f42;
+  static final int VERSION = 2;
+  static final int HEADER_BYTES = 16;
+
+  private static final int KEY_SHIFT = 9;
+  private static final int SCORE_OFFSET = 32;
+
+  private final LongBuffer records;
+  private final int size;
+
+  private OpeningBook(LongBuffer records) {
+    this.records = records;
+    this.size = records.limit();
+  }
+
+  /**
+   * Maps a book file into memory.
+   *
+   * @param file  the file written by write().
+   * @return  the book backed by the file.
+   * @throws IOException  if the file cannot be read or is not a book.
+   */
+  public static OpeningBook open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC
+          || buffer.getInt(4) != VERSION) {
+        throw new IOException("Not an opening book: " + file);
+      }
+      long count = buffer.getLong(8);
+      if (count * 8 != buffer.limit() - HEADER_BYTES) {
+        throw new IOException("Truncated opening book: " + file);
+      }
+      buffer.position(HEADER_BYTES);
+      return new OpeningBook(buffer.slice().asLongBuffer());
+    }
+  }
+
+  /**
+   * Writes the records to a book file, sorted and with one record per position.
+   *
+   * @param file     the file to be written.
+   * @param records  the records created by record(), in any order. The array is sorted.
+   * @throws IOException  if the file cannot be written.
+   */
+  public static void write(Path file, long[] records) throws IOException {
+    Arrays.sort(records);
+    int count = 0;
+    for (int i = 0 ; i < records.length ; i++) {
+      if (count == 0 || keyOf(records[i]) != keyOf(records[count - 1])) {
+        records[count++] = records[i];
+      }
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putInt(MAGIC).putInt(VERSION).putLong(count).flip();
+      writeFully(channel, header);
+      ByteBuffer buffer = ByteBuffer.allocate(8 * 8192);
+      for (int i = 0 ; i < count ; i++) {
+        buffer.putLong(records[i]);
+        if (!buffer.hasRemaining()) {
+          buffer.flip();
+          writeFully(channel, buffer);
+          buffer.clear();
+        }
+      }
+      buffer.flip();
+      writeFully(channel, buffer);
+    }
+  }
+
+  /**
+   * Finds the record of the position.
+   *
+   * @param key  the key of the position, as returned by Position.canonicalKey().
+   * @return  the record, to be read with moveOf() and scoreOf(), or NOT_FOUND.
+   */
+  public long find(long key) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long record = records.get(middle);
+      long middleKey = keyOf(record);
+      if (middleKey < key) {
+        low = middle + 1;
+      }
+      else if (middleKey > key) {
+        high = middle - 1;
+      }
+      else {
+        return record;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Packs the best move of a position into a record.
+   *
+   * @param key    the key of the position.
+   * @param move   the best column.
+   * @param score  the score of the move for the player to move.
+   * @return  the record.
+   */
+  public static long record(long key, int move, int score) {
+    return (key << KEY_SHIFT) | ((long) (score + SCORE_OFFSET) << 3) | move;
+  }
+
+  /**
+   * Reads the fields of a record.
+   *
+   * @param record  the record returned by find().
+   * @return  value of the field in interest.
+   */
+  public static int moveOf(long record) {
+    return (int) (record & 0x7);
+  }
+
+  public static int scoreOf(long record) {
+    return (int) ((record >>> 3) & 0x3f) - SCORE_OFFSET;
+  }
+
+  static long keyOf(long record) {
+    return record >>> KEY_SHIFT;
+  }
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
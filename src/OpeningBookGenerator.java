@@ -0,0 +1,94 @@
+package edu.nyu.pqs.connectfour;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * This is a command-line tool that builds an opening book offline. It enumerates every position
+ * reachable within the given number of plies where the game is still going on, searches each of
+ * them with the negamax strategy, and writes the best moves with OpeningBook.write(). Only the
+ * canonical position of a position and its mirror image is searched and booked.
+ *
+ * Usage: OpeningBookGenerator file [plies [depth [millisPerPosition]]]
+ */
+public class OpeningBookGenerator {
+
+  private final int plies;
+  private final NegamaxStrategy strategy;
+  private long[] keys = new long[1024];
+  private int numKeys;
+
+  /**
+   * @param plies     the positions with up to this number of discs are put in the book.
+   * @param strategy  the search scoring every position.
+   */
+  public OpeningBookGenerator(int plies, NegamaxStrategy strategy) {
+    this.plies = plies;
+    this.strategy = strategy;
+  }
+
+  /**
+   * Searches every position of the opening and returns the records of the book.
+   *
+   * @return  one record per canonical position, sorted by key.
+   */
+  public long[] generate() {
+    numKeys = 0;
+    enumerate(new Position());
+    long[] positions = Arrays.copyOf(keys, numKeys);
+    Arrays.sort(positions);
+    long[] records = new long[positions.length];
+    int count = 0;
+    Position position = new Position();
+    for (int i = 0 ; i < positions.length ; i++) {
+      if (i > 0 && positions[i] == positions[i - 1]) {
+        continue;
+      }
+      position.decode(positions[i]);
+      int move = strategy.chooseColumn(position);
+      records[count++] = OpeningBook.record(positions[i], move, strategy.getScore());
+    }
+    return Arrays.copyOf(records, count);
+  }
+
+  /**
+   * Collects the key of the position and of every position reachable from it within the plies,
+   * stopping at the moves that end the game.
+   */
+  private void enumerate(Position position) {
+    if (position.getMoves() > plies) {
+      return;
+    }
+    if (numKeys == keys.length) {
+      keys = Arrays.copyOf(keys, keys.length * 2);
+    }
+    keys[numKeys++] = position.canonicalKey();
+    for (int column = 0 ; column < Position.COLUMN_LENGTH ; column++) {
+      if (position.canPlay(column) && !position.isWinningMove(column)) {
+        position.play(column);
+        enumerate(position);
+        position.undo(column);
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: OpeningBookGenerator file [plies [depth [millisPerPosition]]]");
+      System.exit(1);
+    }
+    Path file = Paths.get(args[0]);
+    int plies = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+    int depth = args.length > 2 ? Integer.parseInt(args[2]) : Position.SIZE;
+    long millis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+    NegamaxStrategy strategy = new NegamaxStrategy.Builder().maxDepth(depth)
+        .timeBudgetMillis(millis).transpositionTableMegabytes(256).build();
+    long start = System.nanoTime();
+    long[] records = new OpeningBookGenerator(plies, strategy).generate();
+    OpeningBook.write(file, records);
+    System.out.println("Wrote " + records.length + " positions to " + file + " in "
+        + (System.nanoTime() - start) / 1000000 + " ms");
+  }
+}
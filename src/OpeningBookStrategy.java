@@ -0,0 +1,48 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is a strategy that plays the move of the opening book whenever the position is in the
+ * book, and asks another strategy otherwise. The book holds canonical positions, so the move
+ * found for the mirror image of the position is mirrored back.
+ */
+public class OpeningBookStrategy implements MoveStrategy {
+
+  private final OpeningBook book;
+  private final MoveStrategy fallback;
+  private long bookMoves;
+
+  /**
+   * @param book      the book to be consulted first.
+   * @param fallback  the strategy for the positions that are not in the book.
+   */
+  public OpeningBookStrategy(OpeningBook book, MoveStrategy fallback) {
+    this.book = book;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public int chooseColumn(Position position) {
+    long record = book.find(position.canonicalKey());
+    if (record != OpeningBook.NOT_FOUND) {
+      int column = position.canonicalColumn(OpeningBook.moveOf(record));
+      if (position.canPlay(column)) {
+        bookMoves++;
+        return column;
+      }
+    }
+    return fallback.chooseColumn(position);
+  }
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  public long getBookMoves() {
+    return bookMoves;
+  }
+
+  public MoveStrategy getFallback() {
+    return fallback;
+  }
+}
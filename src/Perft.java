@@ -0,0 +1,111 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is a validator of the rules of the game, named after the perft test of chess engines. It
+ * counts the sequences of moves of a given length that can be played from a position, where a
+ * game that has been won or drawn is not played any further. A board representation that plays
+ * and takes back moves or detects wins the wrong way gives counts that differ from the reference
+ * counts of the 6 by 7 board, and timing the count measures the raw speed of putDisc(), undo()
+ * and the detection of wins, since every move is played on the model and taken back.
+ *
+ * Usage: Perft [depth [rows columns connect]]
+ */
+public final class Perft {
+
+  /**
+   * The counts of the 6 by 7 board with four to connect from the empty board, indexed by depth.
+   * They agree with the counts of the BitBoard, the ArrayBoard and the Position, as well as
+   * with the number of games of Connect Four after n plies published by others.
+   */
+  static final long[] REFERENCE_COUNTS = {
+    1L, 7L, 49L, 343L, 2401L, 16807L, 117649L, 823536L, 5673234L, 39394572L, 268031646L,
+    1844590828L, 12418296244L
+  };
+
+  private Perft() {
+  }
+
+  /**
+   * Counts the sequences of moves of the given length from the position of the model, played
+   * in a multi-player game. The model is left as it was.
+   *
+   * @param model  the model, whose game is still going on.
+   * @param depth  the number of moves of every sequence.
+   * @return  the number of sequences.
+   */
+  public static long perft(ConnectFourModel model, int depth) {
+    if (depth == 0) {
+      return 1;
+    }
+    Player player = model.getPreviousTurn() == Player.ONE ? Player.TWO : Player.ONE;
+    long count = 0;
+    for (int column = 0 ; column < model.getBoardColumnLength() ; column++) {
+      if (model.columnIsFull(column)) {
+        continue;
+      }
+      model.putDisc(player, column);
+      if (depth == 1) {
+        count++;
+      }
+      else if (model.getStatus() == Status.IN_PROGRESS) {
+        count += perft(model, depth - 1);
+      }
+      model.undo();
+    }
+    return count;
+  }
+
+  /**
+   * Counts the sequences of moves of the given length from the position, as perft() does on the
+   * model, for the lightweight position the AI searches.
+   *
+   * @param position  the position, where the game is still going on.
+   * @param depth     the number of moves of every sequence.
+   * @return  the number of sequences.
+   */
+  public static long perft(Position position, int depth) {
+    if (depth == 0) {
+      return 1;
+    }
+    long count = 0;
+    for (int column = 0 ; column < Position.COLUMN_LENGTH ; column++) {
+      if (!position.canPlay(column)) {
+        continue;
+      }
+      if (depth == 1) {
+        count++;
+      }
+      else if (!position.isWinningMove(column)) {
+        position.play(column);
+        if (position.getMoves() < Position.SIZE) {
+          count += perft(position, depth - 1);
+        }
+        position.undo(column);
+      }
+    }
+    return count;
+  }
+
+  public static void main(String[] args) {
+    int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    ConnectFourModel model = args.length > 3
+        ? new ConnectFourModel(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+            Integer.parseInt(args[3]))
+        : new ConnectFourModel();
+    boolean classic = model.getBoardRowLength() == BitBoard.ROW_LENGTH
+        && model.getBoardColumnLength() == BitBoard.COLUMN_LENGTH
+        && model.getConnectLength() == BitBoard.CONNECT_LENGTH;
+    model.startGame(Mode.MULTI);
+    for (int d = 1 ; d <= depth ; d++) {
+      long start = System.nanoTime();
+      long count = perft(model, d);
+      long elapsed = System.nanoTime() - start;
+      String check = "";
+      if (classic && d < REFERENCE_COUNTS.length) {
+        check = count == REFERENCE_COUNTS[d] ? "  ok" : "  expected " + REFERENCE_COUNTS[d];
+      }
+      System.out.printf("perft(%d) = %d  %.3f s  %.0f nodes/s%s%n", d, count, elapsed / 1e9,
+          count * 1e9 / Math.max(1, elapsed), check);
+    }
+  }
+}
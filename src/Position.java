@@ -0,0 +1,259 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is a lightweight copy of the board seen from the side of the player to move, meant to
+ * be played on and taken back millions of times by the AI without touching the model. It keeps
+ * only two masks in the layout of BitBoard: the discs of the player to move and every occupied
+ * cell. Playing a move swaps the perspective, so the same code searches for both players.
+ */
+public final class Position {
+
+  static final int ROW_LENGTH = BitBoard.ROW_LENGTH;
+  static final int COLUMN_LENGTH = BitBoard.COLUMN_LENGTH;
+  static final int SIZE = ROW_LENGTH * COLUMN_LENGTH;
+
+  private long current;
+  private long mask;
+  private int moves;
+
+  public Position() {
+  }
+
+  private Position(long current, long mask) {
+    this.current = current;
+    this.mask = mask;
+    this.moves = Long.bitCount(mask);
+  }
+
+  /**
+   * Creates the position of the board as seen by the player who is about to move.
+   *
+   * @param board   the board of the model.
+   * @param player  the player to move.
+   * @return  a position that can be played on without changing the board.
+   */
+  public static Position of(BitBoard board, Player player) {
+    return new Position(board.getDiscs(player), board.getOccupied());
+  }
+
+  /**
+   * Creates the position reached by playing the columns in turn from the empty board.
+   *
+   * @param columns  the columns played, none of them full when it is played.
+   * @return  the position, with the player after the last move to move.
+   */
+  static Position of(int... columns) {
+    Position position = new Position();
+    for (int column : columns) {
+      position.play(column);
+    }
+    return position;
+  }
+
+  /**
+   * Copies the state of another position into this one, so a single instance can be reused.
+   *
+   * @param other  the position to be copied.
+   */
+  public void copyFrom(Position other) {
+    current = other.current;
+    mask = other.mask;
+    moves = other.moves;
+  }
+
+  /**
+   * Loads the discs of the position into a board, so that the strategies playing on boards of
+   * any size can search it too.
+   *
+   * @param board    a board of the classic dimensions, whose discs are replaced.
+   * @param current  the player to move, whose discs are the current ones.
+   * @param other    the other player.
+   */
+  public void copyInto(Board board, Player current, Player other) {
+    Player[][] cells = new Player[ROW_LENGTH][COLUMN_LENGTH];
+    for (int row = 0 ; row < ROW_LENGTH ; row++) {
+      for (int column = 0 ; column < COLUMN_LENGTH ; column++) {
+        long bit = BitBoard.bitAt(row, column);
+        if ((mask & bit) == 0) {
+          cells[row][column] = Player.EMPTY;
+        }
+        else {
+          cells[row][column] = (this.current & bit) != 0 ? current : other;
+        }
+      }
+    }
+    board.load(cells);
+  }
+
+  /**
+   * Checks whether a disc can still be dropped onto the column.
+   *
+   * @param column  the column of interest.
+   * @return  true if the top cell of the column is empty. False, otherwise.
+   */
+  public boolean canPlay(int column) {
+    return (mask & topCell(column)) == 0;
+  }
+
+  /**
+   * Drops a disc of the player to move onto the column and hands the turn to the opponent.
+   * The column must not be full.
+   *
+   * @param column  the column to be played.
+   */
+  public void play(int column) {
+    current ^= mask;
+    mask |= mask + bottomCell(column);
+    moves++;
+  }
+
+  /**
+   * Takes back the last disc dropped onto the column and hands the turn back.
+   *
+   * @param column  the column that was played last.
+   */
+  public void undo(int column) {
+    long bit = Long.highestOneBit(mask & columnMask(column));
+    mask ^= bit;
+    current ^= mask;
+    moves--;
+  }
+
+  /**
+   * Checks whether dropping a disc onto the column wins the game for the player to move.
+   * The column must not be full.
+   *
+   * @param column  the column of interest.
+   * @return  true if the move connects four discs. False, otherwise.
+   */
+  public boolean isWinningMove(int column) {
+    long bit = (mask + bottomCell(column)) & ~mask & columnMask(column);
+    return BitBoard.connectsFour(current | bit, bit);
+  }
+
+  /**
+   * Returns a key that identifies the position uniquely: adding the occupied cells and the
+   * bottom row to the discs of the player to move sets the bit just above every column, which
+   * encodes the heights, and leaves the discs of the player to move below it.
+   *
+   * @return  a key that fits in COLUMN_LENGTH*(ROW_LENGTH+1) bits.
+   */
+  public long key() {
+    return current + mask + BitBoard.BOTTOM_ROW;
+  }
+
+  /**
+   * Returns the key of the mirror image of the position, the columns being read from right to
+   * left. Since the key keeps every column in a block of its own, this only moves the blocks.
+   *
+   * @return  the key of the mirrored position.
+   */
+  public long mirroredKey() {
+    long key = key();
+    long mirrored = 0L;
+    long columnBits = (1L << BitBoard.COLUMN_HEIGHT) - 1;
+    for (int column = 0 ; column < COLUMN_LENGTH ; column++) {
+      long bits = (key >>> (column * BitBoard.COLUMN_HEIGHT)) & columnBits;
+      mirrored |= bits << ((COLUMN_LENGTH - 1 - column) * BitBoard.COLUMN_HEIGHT);
+    }
+    return mirrored;
+  }
+
+  /**
+   * Returns the key shared by the position and its mirror image, the smaller of their keys.
+   * A position and its mirror image have the same score and mirrored best moves, so the caches
+   * and books keyed by it store them once. The moves stored along with such a key are meant
+   * for the canonical position, and are turned into moves of this one by canonicalColumn().
+   *
+   * @return  the canonical key.
+   */
+  public long canonicalKey() {
+    return Math.min(key(), mirroredKey());
+  }
+
+  /**
+   * Checks whether the position is its own canonical position, rather than its mirror image.
+   *
+   * @return  true if key() is the canonical key.
+   */
+  public boolean isCanonical() {
+    return key() <= mirroredKey();
+  }
+
+  /**
+   * Maps a column between the position and its canonical position, in either direction.
+   *
+   * @param column  the column, or -1 for no column.
+   * @return  the same column if the position is canonical, the mirrored column otherwise.
+   */
+  public int canonicalColumn(int column) {
+    return column < 0 || isCanonical() ? column : mirrorColumn(column);
+  }
+
+  /**
+   * Returns the column of the mirror image of a column.
+   */
+  static int mirrorColumn(int column) {
+    return COLUMN_LENGTH - 1 - column;
+  }
+
+  /**
+   * Rebuilds the position from a key returned by key(). In every column of the key, the highest
+   * set bit sits just above the discs, and the discs of the player to move are the bits below it.
+   *
+   * @param key  the key of the position.
+   */
+  public void decode(long key) {
+    long newCurrent = 0L;
+    long newMask = 0L;
+    for (int column = 0 ; column < COLUMN_LENGTH ; column++) {
+      int shift = column * BitBoard.COLUMN_HEIGHT;
+      long bits = (key >>> shift) & ((1L << BitBoard.COLUMN_HEIGHT) - 1);
+      long discs = Long.highestOneBit(bits) - 1;
+      newMask |= discs << shift;
+      newCurrent |= (bits & discs) << shift;
+    }
+    set(newCurrent, newMask);
+  }
+
+  /**
+   * Sets both masks of the position at once.
+   *
+   * @param current  the discs of the player to move.
+   * @param mask     every occupied cell.
+   */
+  void set(long current, long mask) {
+    this.current = current;
+    this.mask = mask;
+    this.moves = Long.bitCount(mask);
+  }
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  public int getMoves() {
+    return moves;
+  }
+
+  public long getCurrent() {
+    return current;
+  }
+
+  public long getMask() {
+    return mask;
+  }
+
+  static long topCell(int column) {
+    return 1L << (column * BitBoard.COLUMN_HEIGHT + ROW_LENGTH - 1);
+  }
+
+  static long bottomCell(int column) {
+    return 1L << (column * BitBoard.COLUMN_HEIGHT);
+  }
+
+  static long columnMask(int column) {
+    return ((1L << ROW_LENGTH) - 1) << (column * BitBoard.COLUMN_HEIGHT);
+  }
+}
@@ -0,0 +1,65 @@
+package edu.nyu.pqs.connectfour;
+
+import java.util.SplittableRandom;
+
+/**
+ * This is an AI that drops its disc onto a column picked at random among the columns that are
+ * not full, each with the same chance. It is the weakest opponent, used as a baseline when the
+ * strategies are measured against each other.
+ *
+ * The column is picked with a single draw among the playable columns, so a move takes the same
+ * time however full the board is, and allocates nothing. The generator is a SplittableRandom,
+ * which is not meant to be shared: every thread should have a strategy of its own, seeded to
+ * replay the same games, or left unseeded.
+ */
+public class RandomStrategy implements MoveStrategy {
+
+  private SplittableRandom random;
+
+  public RandomStrategy() {
+    random = new SplittableRandom();
+  }
+
+  /**
+   * @param seed  the seed of the random columns.
+   */
+  public RandomStrategy(long seed) {
+    random = new SplittableRandom(seed);
+  }
+
+  @Override
+  public int chooseColumn(Position position) {
+    return randomColumn(position);
+  }
+
+  /**
+   * Starts the random columns over from the given seed.
+   *
+   * @param seed  the seed of the random columns.
+   */
+  public void setSeed(long seed) {
+    random = new SplittableRandom(seed);
+  }
+
+  /**
+   * Picks a column that is not full, each with the same chance.
+   *
+   * @param position  the board as seen by the player to move. At least one column is not full.
+   * @return  the index of the column.
+   */
+  protected int randomColumn(Position position) {
+    int playable = 0;
+    for (int column = 0 ; column < Position.COLUMN_LENGTH ; column++) {
+      if (position.canPlay(column)) {
+        playable++;
+      }
+    }
+    int index = random.nextInt(playable);
+    for (int column = 0 ; column < Position.COLUMN_LENGTH ; column++) {
+      if (position.canPlay(column) && index-- == 0) {
+        return column;
+      }
+    }
+    throw new IllegalStateException("no column is playable");
+  }
+}
@@ -0,0 +1,297 @@
+package edu.nyu.pqs.connectfour;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This is an engine that plays recorded games again on a model, move by move through putDisc(),
+ * and checks that the model ends every game with the status that was recorded. Replaying a
+ * corpus of real games this way tells whether a new version of the model still agrees with the
+ * one the games were played on.
+ *
+ * The listeners given to the builder are registered on the model for the replay, each behind an
+ * AsyncListener, so they see every game as it is played. The moves are either paced by a delay,
+ * to watch the games, or played as fast as possible, in which case updates of the board that a
+ * listener has not caught up with are coalesced, and the replay only waits for the listeners
+ * when too many events are still queued.
+ *
+ * Usage: ReplayEngine file [delayMillis]
+ */
+public class ReplayEngine implements Closeable {
+
+  static final int MAX_PENDING_EVENTS = 1 << 14;
+  private static final int MAX_REPORTED_MISMATCHES = 10;
+
+  private final long moveDelayNanos;
+  private final List<AsyncListener> listeners;
+  private ConnectFourModel model;
+
+  /**
+   * This class is the builder for the engine.
+   */
+  public static class Builder {
+    private long moveDelayMillis = 0;
+    private final List<ConnectFourListener> listeners = new ArrayList<ConnectFourListener>();
+
+    /**
+     * Sets the time between two moves of a game.
+     *
+     * @param moveDelayMillis  the delay in milliseconds, 0 to replay as fast as possible.
+     */
+    public Builder moveDelayMillis(long moveDelayMillis) {
+      if (moveDelayMillis < 0) {
+        throw new IllegalArgumentException("delay must not be negative: " + moveDelayMillis);
+      }
+      this.moveDelayMillis = moveDelayMillis;
+      return this;
+    }
+
+    /**
+     * Adds a listener to be notified of the games as they are replayed.
+     *
+     * @param listener  the listener, which is called on a thread of its own.
+     */
+    public Builder listener(ConnectFourListener listener) {
+      listeners.add(listener);
+      return this;
+    }
+
+    /**
+     * Build the engine with the corresponding options.
+     *
+     * @return  ReplayEngine that has been built.
+     */
+    public ReplayEngine build() {
+      return new ReplayEngine(this);
+    }
+  }
+
+  /**
+   * This class is the outcome of a replay.
+   */
+  public static class Result {
+    private final long games;
+    private final long moves;
+    private final long mismatches;
+    private final long elapsedNanos;
+    private final List<Long> firstMismatches;
+
+    Result(long games, long moves, long mismatches, long elapsedNanos,
+        List<Long> firstMismatches) {
+      this.games = games;
+      this.moves = moves;
+      this.mismatches = mismatches;
+      this.elapsedNanos = elapsedNanos;
+      this.firstMismatches = firstMismatches;
+    }
+
+    /**
+     * Gets the value of the indicated variables.
+     *
+     * @return  value of the variables in interest.
+     */
+    public long getGames() {
+      return games;
+    }
+
+    public long getMoves() {
+      return moves;
+    }
+
+    public long getMismatches() {
+      return mismatches;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public double getGamesPerSecond() {
+      return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the numbers of the first games whose replay did not agree with the record.
+     *
+     * @return  the numbers of at most ten games, in order.
+     */
+    public List<Long> getFirstMismatches() {
+      return firstMismatches;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d games, %d moves in %.2f s, %.0f games/s, %d mismatches%s", games,
+          moves, elapsedNanos / 1e9, getGamesPerSecond(), mismatches,
+          mismatches == 0 ? "" : " " + firstMismatches);
+    }
+  }
+
+  private ReplayEngine(Builder builder) {
+    moveDelayNanos = TimeUnit.MILLISECONDS.toNanos(builder.moveDelayMillis);
+    listeners = new ArrayList<AsyncListener>();
+    for (ConnectFourListener listener : builder.listeners) {
+      listeners.add(new AsyncListener.Builder(listener).coalesceUpdates(moveDelayNanos == 0)
+          .threadName("connectfour-replay").build());
+    }
+  }
+
+  /**
+   * Replays a game.
+   *
+   * @param record  the record of the game.
+   * @return  true if every move has been accepted by the model, and the model has ended the
+   *          game with the recorded status.
+   */
+  public boolean replay(GameRecord record) {
+    ConnectFourModel model = modelFor(record);
+    model.startReplay(record.getMode());
+    long next = System.nanoTime();
+    boolean agrees = true;
+    for (int i = 0 ; i < record.getMoveCount() && agrees ; i++) {
+      if (moveDelayNanos > 0) {
+        next += moveDelayNanos;
+        pauseUntil(next);
+      }
+      agrees = model.getStatus() == Status.IN_PROGRESS
+          && model.putDisc(record.getPlayer(i), record.getColumn(i));
+    }
+    if (moveDelayNanos == 0) {
+      throttle();
+    }
+    return agrees && model.getStatus() == record.getStatus();
+  }
+
+  /**
+   * Replays a range of the games of an archive, in order.
+   *
+   * @param archive  the archive.
+   * @param from     the number of the first game.
+   * @param to       the number after the last game.
+   * @return  the outcome of the replay.
+   * @throws InterruptedException  if the thread is interrupted while waiting for the listeners.
+   */
+  public Result replay(GameArchive archive, long from, long to) throws InterruptedException {
+    long start = System.nanoTime();
+    long games = 0;
+    long moves = 0;
+    long mismatches = 0;
+    List<Long> firstMismatches = new ArrayList<Long>();
+    GameArchive.Cursor cursor = archive.cursor(from, to);
+    while (cursor.next()) {
+      GameRecord record = cursor.toRecord();
+      if (!replay(record)) {
+        mismatches++;
+        if (firstMismatches.size() < MAX_REPORTED_MISMATCHES) {
+          firstMismatches.add(cursor.getGame());
+        }
+      }
+      games++;
+      moves += record.getMoveCount();
+    }
+    awaitListeners(Long.MAX_VALUE);
+    return new Result(games, moves, mismatches, System.nanoTime() - start, firstMismatches);
+  }
+
+  /**
+   * Waits until the listeners have been notified of every move replayed so far.
+   *
+   * @param timeoutMillis  the longest time to wait for each listener, in milliseconds.
+   * @return  true if every listener has caught up.
+   * @throws InterruptedException  if the waiting thread is interrupted.
+   */
+  public boolean awaitListeners(long timeoutMillis) throws InterruptedException {
+    boolean idle = true;
+    for (AsyncListener listener : listeners) {
+      idle &= listener.awaitIdle(timeoutMillis);
+    }
+    return idle;
+  }
+
+  /**
+   * Returns the listeners the events of the replay are delivered through, whose metrics tell
+   * how many updates have been coalesced.
+   *
+   * @return  the asynchronous listeners, in the order the listeners were added.
+   */
+  public List<AsyncListener> getListeners() {
+    return listeners;
+  }
+
+  /**
+   * Stops the delivery threads of the listeners, once the events queued so far are delivered.
+   */
+  @Override
+  public void close() {
+    for (AsyncListener listener : listeners) {
+      listener.close();
+    }
+  }
+
+  /**
+   * Returns a model of the dimensions of the record, which is only created again when the
+   * dimensions change from one game to the next.
+   */
+  private ConnectFourModel modelFor(GameRecord record) {
+    if (model == null || model.getBoardRowLength() != record.getRowLength()
+        || model.getBoardColumnLength() != record.getColumnLength()
+        || model.getConnectLength() != record.getConnectLength()) {
+      if (model != null) {
+        for (AsyncListener listener : listeners) {
+          model.unregister(listener);
+        }
+      }
+      model = new ConnectFourModel(record.getRowLength(), record.getColumnLength(),
+          record.getConnectLength());
+      for (AsyncListener listener : listeners) {
+        model.register(listener);
+      }
+    }
+    return model;
+  }
+
+  /**
+   * Waits for the listeners that have fallen too far behind, so their queues do not grow
+   * without bound over a large corpus.
+   */
+  private void throttle() {
+    for (AsyncListener listener : listeners) {
+      if (listener.getQueueDepth() > MAX_PENDING_EVENTS) {
+        try {
+          listener.awaitIdle(Long.MAX_VALUE);
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private static void pauseUntil(long deadline) {
+    for (long left = deadline - System.nanoTime() ; left > 0 ;
+        left = deadline - System.nanoTime()) {
+      LockSupport.parkNanos(left);
+    }
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    if (args.length < 1) {
+      System.err.println("Usage: ReplayEngine file [delayMillis]");
+      System.exit(1);
+    }
+    GameArchive archive = GameArchive.open(Paths.get(args[0]));
+    Builder builder = new Builder();
+    if (args.length > 1) {
+      builder.moveDelayMillis(Long.parseLong(args[1]));
+    }
+    try (ReplayEngine engine = builder.build()) {
+      System.out.println(engine.replay(archive, 0, archive.size()));
+    }
+  }
+}
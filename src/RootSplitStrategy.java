@@ -0,0 +1,243 @@
+package edu.nyu.pqs.connectfour;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This is a parallel version of the search that splits the moves at the root among the threads
+ * of a ForkJoinPool. Every depth of the iterative deepening first searches the best move of the
+ * previous depth alone, so that the other moves can be searched with its score as a bound, and
+ * then searches the remaining moves in parallel (the younger brothers wait for the eldest).
+ * The searches of the different moves share a lock-free transposition table.
+ */
+public class RootSplitStrategy implements MoveStrategy {
+
+  private final ForkJoinPool pool;
+  private final SharedTranspositionTable table;
+  private final NegamaxStrategy[] workers;
+  private final int maxDepth;
+  private final long timeBudgetNanos;
+  private long nodeCount;
+  private long elapsedNanos;
+  private int depthReached;
+
+  /**
+   * This class is the builder for the strategy. Every option has a default, so only the
+   * settings that matter to the caller have to be set.
+   */
+  public static class Builder {
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int maxDepth = Position.SIZE;
+    private long timeBudgetMillis = 250;
+    private int tableMegabytes = 64;
+
+    /**
+     * Sets the number of threads of the pool.
+     *
+     * @param threads  the number of threads, at least 1.
+     */
+    public Builder threads(int threads) {
+      if (threads < 1) {
+        throw new IllegalArgumentException("threads must be at least 1: " + threads);
+      }
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Limits the number of plies searched ahead.
+     *
+     * @param maxDepth  the deepest iteration to be searched, at least 1.
+     */
+    public Builder maxDepth(int maxDepth) {
+      if (maxDepth < 1) {
+        throw new IllegalArgumentException("maxDepth must be at least 1: " + maxDepth);
+      }
+      this.maxDepth = maxDepth;
+      return this;
+    }
+
+    /**
+     * Limits the wall-clock time spent on a single move.
+     *
+     * @param timeBudgetMillis  the time in milliseconds, or 0 for no limit.
+     */
+    public Builder timeBudgetMillis(long timeBudgetMillis) {
+      if (timeBudgetMillis < 0) {
+        throw new IllegalArgumentException("timeBudgetMillis is negative: " + timeBudgetMillis);
+      }
+      this.timeBudgetMillis = timeBudgetMillis;
+      return this;
+    }
+
+    /**
+     * Sets the memory budget of the shared transposition table.
+     *
+     * @param tableMegabytes  the budget in megabytes, at least 1.
+     */
+    public Builder transpositionTableMegabytes(int tableMegabytes) {
+      this.tableMegabytes = tableMegabytes;
+      return this;
+    }
+
+    /**
+     * Build the strategy with the corresponding options.
+     *
+     * @return  RootSplitStrategy that has been built.
+     */
+    public RootSplitStrategy build() {
+      return new RootSplitStrategy(this);
+    }
+  }
+
+  RootSplitStrategy(Builder builder) {
+    pool = new ForkJoinPool(builder.threads);
+    table = new SharedTranspositionTable(builder.tableMegabytes);
+    maxDepth = builder.maxDepth;
+    timeBudgetNanos = builder.timeBudgetMillis == 0
+        ? Long.MAX_VALUE : builder.timeBudgetMillis * 1000000L;
+    workers = new NegamaxStrategy[Position.COLUMN_LENGTH];
+    for (int column = 0 ; column < workers.length ; column++) {
+      workers[column] = new NegamaxStrategy.Builder().sharedTable(table).build();
+    }
+  }
+
+  @Override
+  public int chooseColumn(Position position) {
+    long start = System.nanoTime();
+    long deadline = NegamaxStrategy.deadlineAfter(timeBudgetNanos);
+    nodeCount = 0;
+    depthReached = 0;
+
+    int[] order = NegamaxStrategy.COLUMN_ORDER.clone();
+    int bestColumn = -1;
+    for (int column : order) {
+      if (position.canPlay(column)) {
+        if (position.isWinningMove(column)) {
+          elapsedNanos = System.nanoTime() - start;
+          return column;
+        }
+        if (bestColumn == -1) {
+          bestColumn = column;
+        }
+      }
+    }
+
+    int[] scores = new int[Position.COLUMN_LENGTH];
+    int depthLimit = Math.min(maxDepth, Position.SIZE - position.getMoves());
+    for (int depth = 1 ; depth <= depthLimit ; depth++) {
+      int eldest = bestColumn;
+      scores[eldest] = searchMove(position, eldest, -Position.SIZE, depth, deadline);
+      boolean aborted = workers[eldest].isAborted();
+
+      List<Callable<Integer>> brothers = new ArrayList<Callable<Integer>>();
+      List<Integer> columns = new ArrayList<Integer>();
+      for (int column : order) {
+        if (column != eldest && position.canPlay(column) && !aborted) {
+          brothers.add(brotherSearch(position, column, scores[eldest], depth, deadline));
+          columns.add(column);
+        }
+      }
+      List<Future<Integer>> results = pool.invokeAll(brothers);
+      for (int i = 0 ; i < results.size() ; i++) {
+        int column = columns.get(i);
+        scores[column] = valueOf(results.get(i));
+        aborted |= workers[column].isAborted();
+      }
+      for (int column = 0 ; column < workers.length ; column++) {
+        if (column == eldest || columns.contains(column)) {
+          nodeCount += workers[column].getNodeCount();
+        }
+      }
+      if (aborted) {
+        break;
+      }
+
+      int bestScore = scores[eldest];
+      int bestOfDepth = eldest;
+      for (int column : columns) {
+        if (scores[column] > bestScore) {
+          bestScore = scores[column];
+          bestOfDepth = column;
+        }
+      }
+      bestColumn = bestOfDepth;
+      depthReached = depth;
+      NegamaxStrategy.moveToFront(order, bestColumn);
+      if (bestScore != 0) {
+        break;
+      }
+    }
+    elapsedNanos = System.nanoTime() - start;
+    return bestColumn;
+  }
+
+  /**
+   * Stops the threads of the pool. The strategy cannot be used afterwards.
+   */
+  public void shutdown() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * Gets the counters of the last search.
+   *
+   * @return  value of the variables in interest.
+   */
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  public int getDepthReached() {
+    return depthReached;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  public long getNodesPerSecond() {
+    return elapsedNanos == 0 ? 0 : nodeCount * 1000000000L / elapsedNanos;
+  }
+
+  public int getThreads() {
+    return pool.getParallelism();
+  }
+
+  /**
+   * Scores a move at the root on a copy of the position with the worker of its column.
+   */
+  private int searchMove(Position position, int column, int alpha, int depth, long deadline) {
+    Position child = new Position();
+    child.copyFrom(position);
+    child.play(column);
+    return -workers[column].search(child, -Position.SIZE, -alpha, depth - 1, deadline);
+  }
+
+  private Callable<Integer> brotherSearch(final Position position, final int column,
+      final int alpha, final int depth, final long deadline) {
+    return new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return searchMove(position, column, alpha, depth, deadline);
+      }
+    };
+  }
+
+  private static int valueOf(Future<Integer> result) {
+    try {
+      return result.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while searching", e);
+    }
+    catch (ExecutionException e) {
+      throw new IllegalStateException("Root move search failed", e.getCause());
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is an interface for the tables caching the results of the search by position key.
+ * Entries are packed into an int, to be read with the static methods of TranspositionTable.
+ */
+public interface ScoreTable {
+
+  /**
+   * Looks up the entry stored for the position.
+   *
+   * @param key  the key of the position.
+   * @return  the packed entry, or TranspositionTable.NOT_FOUND if the position is not stored.
+   */
+  int probe(long key);
+
+  /**
+   * Stores the result of a search of the position.
+   *
+   * @param key    the key of the position.
+   * @param score  the score found by the search.
+   * @param flag   whether the score is EXACT, a LOWER_BOUND or an UPPER_BOUND.
+   * @param depth  the number of plies that were searched below the position.
+   * @param move   the best column found, or -1 if there is none.
+   */
+  void store(long key, int score, int flag, int depth, int move);
+
+  /**
+   * Empties every slot of the table.
+   */
+  void clear();
+}
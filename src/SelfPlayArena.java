@@ -0,0 +1,417 @@
+package edu.nyu.pqs.connectfour;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is a command-line tool that plays games between two AI strategies on headless models and
+ * reports how the first strategy has fared against the second. The strategies take turns at
+ * moving first, so neither gets the advantage of the first move in most of the games.
+ *
+ * The games are split into chunks handed out to worker threads. Every worker keeps one model, one
+ * position and its own instances of the strategies for all of its games, and every chunk starts
+ * from a seed derived from the seed of the arena and the index of the chunk, so the results of a
+ * seeded arena do not depend on the number of threads or on the order the chunks are played in.
+ * The strategies are given as one of:
+ *   random    a random column among those not full.
+ *   one-ply   the original AI: a winning column, otherwise a random one.
+ *   depth-N   the negamax search looking N plies ahead, without a time limit.
+ *   mcts-N    the Monte Carlo tree search running N iterations a move on one thread.
+ *   eval-N    the search looking N plies ahead and scoring the threats where it stops.
+ *
+ * Usage: SelfPlayArena first second [games [threads [seed]]]
+ */
+public class SelfPlayArena {
+
+  static final int CHUNK_SIZE = 256;
+  private static final double Z_95 = 1.959964;
+  private static final int TABLE_MEGABYTES = 4;
+  private static final String DEPTH = "depth-";
+  private static final String MCTS = "mcts-";
+  private static final String EVAL = "eval-";
+
+  private final String first;
+  private final String second;
+  private final long games;
+  private final int threads;
+  private final long seed;
+
+  /**
+   * This class is the builder for the arena.
+   */
+  public static class Builder {
+    private final String first;
+    private final String second;
+    private long games = 10000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long seed = System.nanoTime();
+
+    /**
+     * Creates the builder for the games between the two strategies.
+     *
+     * @param first   the strategy whose results are reported.
+     * @param second  the strategy it plays against.
+     */
+    public Builder(String first, String second) {
+      checkStrategy(first);
+      checkStrategy(second);
+      this.first = first;
+      this.second = second;
+    }
+
+    /**
+     * Sets the number of games to be played.
+     *
+     * @param games  the number of games, at least 1.
+     */
+    public Builder games(long games) {
+      if (games < 1) {
+        throw new IllegalArgumentException("games must be at least 1: " + games);
+      }
+      this.games = games;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads playing the games.
+     *
+     * @param threads  the number of threads, at least 1.
+     */
+    public Builder threads(int threads) {
+      if (threads < 1) {
+        throw new IllegalArgumentException("threads must be at least 1: " + threads);
+      }
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Seeds the random choices of the strategies, so that the same games are played again.
+     *
+     * @param seed  the seed of the arena.
+     */
+    public Builder seed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    /**
+     * Build the arena with the corresponding options.
+     *
+     * @return  SelfPlayArena that has been built.
+     */
+    public SelfPlayArena build() {
+      return new SelfPlayArena(this);
+    }
+  }
+
+  /**
+   * This class is the outcome of the games, counted from the side of the first strategy.
+   */
+  public static class Result {
+    private final long wins;
+    private final long draws;
+    private final long losses;
+    private final long elapsedNanos;
+
+    Result(long wins, long draws, long losses, long elapsedNanos) {
+      this.wins = wins;
+      this.draws = draws;
+      this.losses = losses;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the value of the indicated variables.
+     *
+     * @return  value of the variables in interest.
+     */
+    public long getWins() {
+      return wins;
+    }
+
+    public long getDraws() {
+      return draws;
+    }
+
+    public long getLosses() {
+      return losses;
+    }
+
+    public long getGames() {
+      return wins + draws + losses;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public double getGamesPerSecond() {
+      return elapsedNanos == 0 ? 0 : getGames() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the 95% confidence interval of the rate of an outcome, as the Wilson score
+     * interval, which stays within [0, 1] even for rates near 0 or 1.
+     *
+     * @param count  the number of games with the outcome.
+     * @return  the lower and the upper bound of the rate.
+     */
+    public double[] confidenceInterval(long count) {
+      double n = getGames();
+      double rate = count / n;
+      double spread = Z_95 * Math.sqrt(rate * (1 - rate) / n + Z_95 * Z_95 / (4 * n * n));
+      double center = rate + Z_95 * Z_95 / (2 * n);
+      double scale = 1 + Z_95 * Z_95 / n;
+      return new double[] { Math.max(0, (center - spread) / scale),
+          Math.min(1, (center + spread) / scale) };
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder report = new StringBuilder();
+      report.append(String.format("%d games in %.2f s, %.0f games/s%n", getGames(),
+          elapsedNanos / 1e9, getGamesPerSecond()));
+      appendRate(report, "win ", wins);
+      appendRate(report, "draw", draws);
+      appendRate(report, "loss", losses);
+      return report.toString();
+    }
+
+    private void appendRate(StringBuilder report, String name, long count) {
+      double[] interval = confidenceInterval(count);
+      report.append(String.format("%s %8.4f%%  95%% CI [%.4f%%, %.4f%%]%n", name,
+          100.0 * count / getGames(), 100 * interval[0], 100 * interval[1]));
+    }
+  }
+
+  private SelfPlayArena(Builder builder) {
+    first = builder.first;
+    second = builder.second;
+    games = builder.games;
+    threads = builder.threads;
+    seed = builder.seed;
+  }
+
+  /**
+   * Plays all the games and waits for them to end.
+   *
+   * @return  the outcome of the games for the first strategy.
+   * @throws InterruptedException  if the waiting thread is interrupted.
+   */
+  public Result run() throws InterruptedException {
+    final AtomicInteger nextChunk = new AtomicInteger();
+    final long chunks = (games + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    List<Callable<long[]>> workers = new ArrayList<Callable<long[]>>();
+    for (int i = 0 ; i < threads ; i++) {
+      workers.add(new Callable<long[]>() {
+        @Override
+        public long[] call() {
+          Worker worker = new Worker();
+          for (long chunk = nextChunk.getAndIncrement() ; chunk < chunks ;
+              chunk = nextChunk.getAndIncrement()) {
+            worker.playChunk(chunk);
+          }
+          return worker.outcomes;
+        }
+      });
+    }
+
+    long start = System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    long[] outcomes = new long[3];
+    try {
+      for (Future<long[]> future : pool.invokeAll(workers)) {
+        long[] counts = future.get();
+        for (int i = 0 ; i < outcomes.length ; i++) {
+          outcomes[i] += counts[i];
+        }
+      }
+    }
+    catch (ExecutionException e) {
+      throw new IllegalStateException("a game has failed", e.getCause());
+    }
+    finally {
+      pool.shutdownNow();
+    }
+    return new Result(outcomes[0], outcomes[1], outcomes[2], System.nanoTime() - start);
+  }
+
+  /**
+   * This class holds what a thread reuses from one game to the next.
+   */
+  private class Worker {
+    private final ConnectFourModel model = new ConnectFourModel();
+    private final Position position = new Position();
+    private final MoveStrategy firstStrategy = createStrategy(first);
+    private final MoveStrategy secondStrategy = createStrategy(second);
+    private final long[] outcomes = new long[3];
+
+    /**
+     * Plays the games of the chunk, starting from the state the chunk alone decides.
+     */
+    void playChunk(long chunk) {
+      long chunkSeed = seed ^ (chunk * 0x9E3779B97F4A7C15L);
+      reset(firstStrategy, chunkSeed);
+      reset(secondStrategy, ~chunkSeed);
+      long end = Math.min(games, (chunk + 1) * CHUNK_SIZE);
+      for (long game = chunk * CHUNK_SIZE ; game < end ; game++) {
+        boolean firstMovesFirst = game % 2 == 0;
+        Player winner = playGame(firstMovesFirst ? firstStrategy : secondStrategy,
+            firstMovesFirst ? secondStrategy : firstStrategy);
+        if (winner == Player.EMPTY) {
+          outcomes[1]++;
+        }
+        else if ((winner == Player.ONE) == firstMovesFirst) {
+          outcomes[0]++;
+        }
+        else {
+          outcomes[2]++;
+        }
+      }
+    }
+
+    /**
+     * Plays a game on the model, Player.ONE moving first.
+     *
+     * @return  the winner, or Player.EMPTY if the game is drawn.
+     * @throws IllegalStateException  if a strategy chooses a column that cannot be played.
+     */
+    private Player playGame(MoveStrategy one, MoveStrategy two) {
+      model.startGame(Mode.MULTI);
+      position.set(0L, 0L);
+      Player player = Player.ONE;
+      while (true) {
+        MoveStrategy strategy = player == Player.ONE ? one : two;
+        int column = strategy.chooseColumn(position);
+        if (column < 0 || column >= Position.COLUMN_LENGTH || !model.putDisc(player, column)) {
+          throw new IllegalStateException("strategy "
+              + (strategy == firstStrategy ? first : second) + " has played column " + column
+              + ", which cannot be played");
+        }
+        position.play(column);
+        if (model.getStatus() == Status.WIN) {
+          return player;
+        }
+        if (model.getStatus() == Status.DRAWN) {
+          return Player.EMPTY;
+        }
+        player = player == Player.ONE ? Player.TWO : Player.ONE;
+      }
+    }
+  }
+
+  /**
+   * Seeds the random columns of a strategy, or empties the table of a search, whose content
+   * would otherwise make the moves of a chunk depend on the chunks played before it by the same
+   * thread.
+   */
+  private static void reset(MoveStrategy strategy, long seed) {
+    if (strategy instanceof RandomStrategy) {
+      ((RandomStrategy) strategy).setSeed(seed);
+    }
+    if (strategy instanceof MctsStrategy) {
+      ((MctsStrategy) strategy).setSeed(seed);
+    }
+    if (strategy instanceof NegamaxStrategy) {
+      ScoreTable table = ((NegamaxStrategy) strategy).getTranspositionTable();
+      if (table != null) {
+        table.clear();
+      }
+    }
+  }
+
+  /**
+   * Creates the strategy of the given name.
+   *
+   * @param name  random, one-ply, depth-N, mcts-N or eval-N.
+   * @return  the strategy, whose random columns are seeded by the chunks.
+   */
+  static MoveStrategy createStrategy(String name) {
+    if (name.equals("random")) {
+      return new RandomStrategy();
+    }
+    if (name.equals("one-ply")) {
+      return new OnePlyStrategy();
+    }
+    if (name.startsWith(DEPTH)) {
+      return new NegamaxStrategy.Builder().maxDepth((int) parseSuffix(name, DEPTH))
+          .timeBudgetMillis(0).transpositionTableMegabytes(TABLE_MEGABYTES).build();
+    }
+    if (name.startsWith(MCTS)) {
+      return new MctsStrategy.Builder().timeBudgetMillis(0)
+          .maxIterations(parseSuffix(name, MCTS)).build();
+    }
+    if (name.startsWith(EVAL)) {
+      return new HeuristicStrategy.Builder().maxDepth((int) parseSuffix(name, EVAL))
+          .timeBudgetMillis(0).build();
+    }
+    throw new IllegalArgumentException("unknown strategy: " + name);
+  }
+
+  /**
+   * Checks that the name is one accepted by createStrategy(), without creating the strategy and
+   * the tables it would allocate.
+   *
+   * @param name  the name of the strategy.
+   * @throws IllegalArgumentException  if no strategy has the name.
+   */
+  static void checkStrategy(String name) {
+    if (name.equals("random") || name.equals("one-ply")) {
+      return;
+    }
+    for (String prefix : new String[] { DEPTH, MCTS, EVAL }) {
+      if (name.startsWith(prefix)) {
+        parseSuffix(name, prefix);
+        return;
+      }
+    }
+    throw new IllegalArgumentException("unknown strategy: " + name);
+  }
+
+  /**
+   * Reads the number after the prefix of the name, which must be at least 1 and fit the int
+   * option it is given to.
+   *
+   * @throws IllegalArgumentException  if the rest of the name is not such a number.
+   */
+  private static long parseSuffix(String name, String prefix) {
+    long value;
+    try {
+      value = Long.parseLong(name.substring(prefix.length()));
+    }
+    catch (NumberFormatException e) {
+      throw new IllegalArgumentException("unknown strategy: " + name);
+    }
+    if (value < 1 || (!prefix.equals(MCTS) && value > Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException("bad strategy: " + name);
+    }
+    return value;
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    if (args.length < 2) {
+      System.err.println("Usage: SelfPlayArena first second [games [threads [seed]]]");
+      System.err.println("Strategies: random, one-ply, depth-N, mcts-N, eval-N");
+      System.exit(1);
+    }
+    Builder builder = new Builder(args[0], args[1]);
+    if (args.length > 2) {
+      builder.games(Long.parseLong(args[2]));
+    }
+    if (args.length > 3) {
+      builder.threads(Integer.parseInt(args[3]));
+    }
+    if (args.length > 4) {
+      builder.seed(Long.parseLong(args[4]));
+    }
+    System.out.println(args[0] + " against " + args[1]);
+    System.out.print(builder.build().run());
+  }
+}
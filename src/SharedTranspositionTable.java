@@ -0,0 +1,100 @@
+package edu.nyu.pqs.connectfour;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This is a transposition table that can be shared by search threads without any lock.
+ * Every slot is two longs: the packed entry, and the key of the position XORed with that entry.
+ * A thread may read one word of a slot before and the other after another thread has written
+ * it, but such a torn slot no longer XORs back to the key being probed and is treated as empty.
+ * Each word is read and written atomically with opaque access, which costs no fence on common
+ * hardware. Losing an entry to a race only costs some search, never a wrong result.
+ *
+ * The table uses the two-tier replacement of TranspositionTable: the first slot of a bucket keeps
+ * the deepest result, the second the newest. Entries are in the same format, to be read with
+ * the static methods of TranspositionTable.
+ */
+public class SharedTranspositionTable implements ScoreTable {
+
+  static final int BYTES_PER_ENTRY = 16;
+  private static final long VALID = 1L << 63;
+
+  private final AtomicLongArray words;
+  private final int bucketMask;
+
+  /**
+   * Creates a table whose number of buckets is the largest power of two that fits in the budget.
+   *
+   * @param megabytes  the memory budget of the table, at least 1.
+   */
+  public SharedTranspositionTable(int megabytes) {
+    if (megabytes < 1) {
+      throw new IllegalArgumentException("megabytes must be at least 1: " + megabytes);
+    }
+    long buckets = Long.highestOneBit(((long) megabytes << 20) / (2 * BYTES_PER_ENTRY));
+    buckets = Math.min(buckets, 1L << 28);
+    words = new AtomicLongArray((int) buckets * 4);
+    bucketMask = (int) buckets - 1;
+  }
+
+  @Override
+  public int probe(long key) {
+    int first = bucketOf(key);
+    long stored = key | VALID;
+    long data = words.getOpaque(first + 1);
+    if ((words.getOpaque(first) ^ data) == stored) {
+      return (int) data;
+    }
+    data = words.getOpaque(first + 3);
+    if ((words.getOpaque(first + 2) ^ data) == stored) {
+      return (int) data;
+    }
+    return TranspositionTable.NOT_FOUND;
+  }
+
+  @Override
+  public void store(long key, int score, int flag, int depth, int move) {
+    int first = bucketOf(key);
+    long stored = key | VALID;
+    long data = TranspositionTable.pack(score, flag, depth, move) & 0xffffffffL;
+    long firstData = words.getOpaque(first + 1);
+    long firstCheck = words.getOpaque(first);
+    int slot;
+    if ((firstCheck ^ firstData) == stored
+        || depth >= TranspositionTable.depthOf((int) firstData)) {
+      if ((firstCheck ^ firstData) != stored) {
+        words.setOpaque(first + 2, firstCheck);
+        words.setOpaque(first + 3, firstData);
+      }
+      slot = first;
+    }
+    else {
+      slot = first + 2;
+    }
+    words.setOpaque(slot, stored ^ data);
+    words.setOpaque(slot + 1, data);
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0 ; i < words.length() ; i++) {
+      words.setOpaque(i, 0L);
+    }
+  }
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  public int getCapacity() {
+    return words.length() / 2;
+  }
+
+  /**
+   * Returns the index of the first word of the bucket of the key.
+   */
+  int bucketOf(long key) {
+    return ((int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & bucketMask) << 2;
+  }
+}
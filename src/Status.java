@@ -1,13 +1,15 @@
 package edu.nyu.pqs.connectfour;
 
 /**
- * This is an enum that takes two values between win or drawn.
+ * This is an enum that takes three values between in progress, win or drawn.
  * The status WIN, depending on whether its the player's turn or not, can display the message
- * for winner or loser.
+ * for winner or loser. The status IN_PROGRESS is only held by the model while moves can still
+ * be played, and is never passed to the views in gameOver().
  * @author  Ssangwook Hong
  * @date    Apr 24 2016
  */
 public enum Status {
+  IN_PROGRESS,
   WIN,
   DRAWN
 }
@@ -0,0 +1,267 @@
+package edu.nyu.pqs.connectfour;
+
+import java.util.Arrays;
+
+/**
+ * This is a static evaluation of the positions of a board of any size, for the searches that
+ * stop short of the end of the game. It looks at every window of the board, a run of cells as
+ * long as the line to connect in any of the four directions, and counts the windows holding the
+ * discs of only one player: the more discs such an open window holds, the more it is worth. A
+ * window one disc short of a line is a threat on its empty cell, and a threat is worth more to
+ * the player it suits by the parity of its row, counted from 1 at the bottom: odd rows for the
+ * player who has moved first, even rows for the other, since those are the cells the zugzwang
+ * of a filling board hands to each player. Discs near the center column, which take part in the
+ * most windows, are worth a little more too.
+ *
+ * The counts are not recomputed from the board for every position the search reaches. They are
+ * kept up to date by place() and remove(), which only visit the windows going through the cell
+ * of the disc, so a move costs time in the number of those windows rather than in the size of
+ * the board, and evaluate() only adds the counts up.
+ */
+public final class ThreatEvaluator {
+
+  static final int CENTER_WEIGHT = 2;
+  static final int PARITY_WEIGHT = 8;
+  private static final int MAX_WEIGHT_SHIFT = 16;
+  private static final int[][] DIRECTIONS = { { 1, 0 }, { 0, 1 }, { 1, 1 }, { 1, -1 } };
+  private static final Player[] PLAYERS = Player.values();
+
+  private final int rowLength;
+  private final int columnLength;
+  private final int connectLength;
+  private final int windows;
+  private final int[][] cellWindows;
+  private final int[] windowXors;
+  private final int[] weights;
+  private final int[] centerWeights;
+  private final byte[] cells;
+  private final int[] counts;
+  private final byte[] discs;
+  private final byte[] owners;
+  private final int[] occupiedXors;
+  private final int[][] openWindows;
+  private final int[] oddThreats;
+  private final int[] evenThreats;
+  private final int[] center;
+  private int discCount;
+
+  /**
+   * Creates the evaluation of an empty board.
+   *
+   * @param rows     the number of rows, at least 1.
+   * @param columns  the number of columns, at least 1.
+   * @param connect  the number of discs to connect to win, at least 1.
+   */
+  public ThreatEvaluator(int rows, int columns, int connect) {
+    if (rows < 1 || columns < 1 || connect < 1) {
+      throw new IllegalArgumentException("dimensions must be at least 1: " + rows + "x"
+          + columns + ", connect " + connect);
+    }
+    rowLength = rows;
+    columnLength = columns;
+    connectLength = connect;
+
+    int[] windowsPerCell = new int[rows * columns];
+    int count = 0;
+    for (int[] direction : DIRECTIONS) {
+      for (int row = 0 ; row < rows ; row++) {
+        for (int column = 0 ; column < columns ; column++) {
+          if (fits(row, column, direction)) {
+            for (int i = 0 ; i < connect ; i++) {
+              windowsPerCell[(row + i * direction[0]) * columns + column + i * direction[1]]++;
+            }
+            count++;
+          }
+        }
+      }
+    }
+    windows = count;
+    cellWindows = new int[rows * columns][];
+    for (int cell = 0 ; cell < cellWindows.length ; cell++) {
+      cellWindows[cell] = new int[windowsPerCell[cell]];
+    }
+    windowXors = new int[windows];
+    int window = 0;
+    for (int[] direction : DIRECTIONS) {
+      for (int row = 0 ; row < rows ; row++) {
+        for (int column = 0 ; column < columns ; column++) {
+          if (fits(row, column, direction)) {
+            for (int i = 0 ; i < connect ; i++) {
+              int cell = (row + i * direction[0]) * columns + column + i * direction[1];
+              cellWindows[cell][--windowsPerCell[cell]] = window;
+              windowXors[window] ^= cell + 1;
+            }
+            window++;
+          }
+        }
+      }
+    }
+
+    weights = new int[connect + 1];
+    for (int k = 2 ; k < connect ; k++) {
+      weights[k] = 1 << Math.min(2 * (k - 1), MAX_WEIGHT_SHIFT);
+    }
+    centerWeights = new int[columns];
+    for (int column = 0 ; column < columns ; column++) {
+      centerWeights[column] = CENTER_WEIGHT * Math.min(column, columns - 1 - column);
+    }
+    cells = new byte[rows * columns];
+    counts = new int[PLAYERS.length * windows];
+    discs = new byte[windows];
+    owners = new byte[windows];
+    occupiedXors = new int[windows];
+    openWindows = new int[PLAYERS.length][connect + 1];
+    oddThreats = new int[PLAYERS.length];
+    evenThreats = new int[PLAYERS.length];
+    center = new int[PLAYERS.length];
+  }
+
+  /**
+   * Empties the board of the evaluation.
+   */
+  public void clear() {
+    Arrays.fill(cells, (byte) 0);
+    Arrays.fill(counts, 0);
+    Arrays.fill(discs, (byte) 0);
+    Arrays.fill(owners, (byte) 0);
+    Arrays.fill(occupiedXors, 0);
+    for (int[] open : openWindows) {
+      Arrays.fill(open, 0);
+    }
+    Arrays.fill(oddThreats, 0);
+    Arrays.fill(evenThreats, 0);
+    Arrays.fill(center, 0);
+    discCount = 0;
+  }
+
+  /**
+   * Sets the evaluation to the discs of a board of the same dimensions.
+   *
+   * @param board  the board, which is not changed.
+   */
+  public void load(Board board) {
+    clear();
+    for (int row = 0 ; row < rowLength ; row++) {
+      for (int column = 0 ; column < columnLength ; column++) {
+        Player player = board.getDiscAt(row, column);
+        if (player != Player.EMPTY) {
+          place(player, row, column);
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds a disc to the evaluation.
+   *
+   * @param player  the player of the disc.
+   * @param row     the row of the disc, whose cell must be empty.
+   * @param column  the column of the disc.
+   */
+  public void place(Player player, int row, int column) {
+    int cell = row * columnLength + column;
+    int ordinal = player.ordinal();
+    cells[cell] = (byte) ordinal;
+    for (int window : cellWindows[cell]) {
+      count(window, -1);
+      if (counts[ordinal * windows + window]++ == 0) {
+        owners[window] |= 1 << ordinal;
+      }
+      discs[window]++;
+      occupiedXors[window] ^= cell + 1;
+      count(window, 1);
+    }
+    center[ordinal] += centerWeights[column];
+    discCount++;
+  }
+
+  /**
+   * Takes a disc off the evaluation.
+   *
+   * @param row     the row of the disc, whose cell must hold one.
+   * @param column  the column of the disc.
+   */
+  public void remove(int row, int column) {
+    int cell = row * columnLength + column;
+    int ordinal = cells[cell];
+    cells[cell] = 0;
+    for (int window : cellWindows[cell]) {
+      count(window, -1);
+      if (--counts[ordinal * windows + window] == 0) {
+        owners[window] &= ~(1 << ordinal);
+      }
+      discs[window]--;
+      occupiedXors[window] ^= cell + 1;
+      count(window, 1);
+    }
+    center[ordinal] -= centerWeights[column];
+    discCount--;
+  }
+
+  /**
+   * Scores the position for the player to move. Who has moved first is told by the number of
+   * discs on the board, which is even when the player to move is the first one.
+   *
+   * @param player    the player to move.
+   * @param opponent  the other player.
+   * @return  the score, positive if the position favours the player to move.
+   */
+  public int evaluate(Player player, Player opponent) {
+    boolean first = (discCount & 1) == 0;
+    return scoreOf(player.ordinal(), first) - scoreOf(opponent.ordinal(), !first);
+  }
+
+  /**
+   * Returns the number of windows holding the given number of discs of the player and no disc
+   * of any other player.
+   */
+  public int getOpenWindows(Player player, int discs) {
+    return openWindows[player.ordinal()][discs];
+  }
+
+  /**
+   * Returns the number of threats of the player, the windows one disc short of a line, on the
+   * odd or on the even rows counted from 1 at the bottom. A cell threatened by several windows
+   * is counted once for each of them.
+   */
+  public int getThreats(Player player, boolean oddRows) {
+    return oddRows ? oddThreats[player.ordinal()] : evenThreats[player.ordinal()];
+  }
+
+  private int scoreOf(int ordinal, boolean first) {
+    int score = center[ordinal];
+    for (int k = 2 ; k < connectLength ; k++) {
+      score += weights[k] * openWindows[ordinal][k];
+    }
+    return score + PARITY_WEIGHT * (first ? oddThreats[ordinal] : evenThreats[ordinal]);
+  }
+
+  /**
+   * Adds the window to the counts of its player, or takes it off with a sign of -1, if all of
+   * its discs are of the same player.
+   */
+  private void count(int window, int sign) {
+    int mask = owners[window];
+    if (mask == 0 || (mask & (mask - 1)) != 0) {
+      return;
+    }
+    int ordinal = Integer.numberOfTrailingZeros(mask);
+    int k = discs[window];
+    openWindows[ordinal][k] += sign;
+    if (k == connectLength - 1) {
+      int empty = (windowXors[window] ^ occupiedXors[window]) - 1;
+      if (((rowLength - empty / columnLength) & 1) != 0) {
+        oddThreats[ordinal] += sign;
+      }
+      else {
+        evenThreats[ordinal] += sign;
+      }
+    }
+  }
+
+  private boolean fits(int row, int column, int[] direction) {
+    int lastRow = row + (connectLength - 1) * direction[0];
+    int lastColumn = column + (connectLength - 1) * direction[1];
+    return lastRow < rowLength && lastColumn >= 0 && lastColumn < columnLength;
+  }
+}
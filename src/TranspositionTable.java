@@ -0,0 +1,204 @@
+package edu.nyu.pqs.connectfour;
+
+/**
+ * This is a fixed-size cache of the positions already scored by the search. A position of the
+ * 6 by 7 board has a unique key of 49 bits (see Position.key()), so the whole key is stored and
+ * a probe can never return the entry of another position. Entries live in two primitive arrays
+ * sized once from a memory budget, so a long-running search allocates nothing per position.
+ *
+ * The table is split into buckets of two slots. How a new entry finds its slot is set by the
+ * Replacement policy: by default the first slot keeps the deepest result seen for the bucket and
+ * the second slot always takes the newest one, so deep results survive while recent ones are
+ * still cached.
+ */
+public class TranspositionTable implements ScoreTable {
+
+  /**
+   * This is an enum for the way a bucket picks the slot to be overwritten.
+   */
+  public enum Replacement {
+    ALWAYS_REPLACE,
+    DEPTH_PREFERRED,
+    TWO_TIER
+  }
+
+  public static final int EXACT = 0;
+  public static final int LOWER_BOUND = 1;
+  public static final int UPPER_BOUND = 2;
+  public static final int NOT_FOUND = -1;
+  static final int BYTES_PER_ENTRY = 12;
+
+  private static final long VALID = 1L << 63;
+  private static final int SCORE_OFFSET = 64;
+  private static final int NO_MOVE = 15;
+
+  private final long[] keys;
+  private final int[] entries;
+  private final int bucketMask;
+  private final Replacement replacement;
+  private long probes;
+  private long hits;
+
+  /**
+   * Creates a table using the two-tier replacement policy.
+   *
+   * @param megabytes  the memory budget of the table.
+   */
+  public TranspositionTable(int megabytes) {
+    this(megabytes, Replacement.TWO_TIER);
+  }
+
+  /**
+   * Creates a table whose number of buckets is the largest power of two that fits in the budget.
+   *
+   * @param megabytes    the memory budget of the table, at least 1.
+   * @param replacement  the policy deciding which slot of a bucket a new entry overwrites.
+   */
+  public TranspositionTable(int megabytes, Replacement replacement) {
+    if (megabytes < 1) {
+      throw new IllegalArgumentException("megabytes must be at least 1: " + megabytes);
+    }
+    long buckets = Long.highestOneBit(((long) megabytes << 20) / (2 * BYTES_PER_ENTRY));
+    buckets = Math.min(buckets, 1L << 29);
+    keys = new long[(int) buckets * 2];
+    entries = new int[(int) buckets * 2];
+    bucketMask = (int) buckets - 1;
+    this.replacement = replacement;
+  }
+
+  @Override
+  public int probe(long key) {
+    probes++;
+    int slot = bucketOf(key);
+    long stored = key | VALID;
+    if (keys[slot] == stored) {
+      hits++;
+      return entries[slot];
+    }
+    if (keys[slot + 1] == stored) {
+      hits++;
+      return entries[slot + 1];
+    }
+    return NOT_FOUND;
+  }
+
+  @Override
+  public void store(long key, int score, int flag, int depth, int move) {
+    int first = bucketOf(key);
+    int second = first + 1;
+    long stored = key | VALID;
+    int slot;
+    switch (replacement) {
+      case ALWAYS_REPLACE:
+        if (keys[second] == stored) {
+          slot = second;
+        }
+        else {
+          if (keys[first] != stored) {
+            demote(first);
+          }
+          slot = first;
+        }
+        break;
+      case DEPTH_PREFERRED:
+        if (keys[first] == stored) {
+          slot = first;
+        }
+        else if (keys[second] == stored) {
+          slot = second;
+        }
+        else {
+          slot = depthOf(entries[second]) < depthOf(entries[first]) ? second : first;
+          if (depth < depthOf(entries[slot])) {
+            return;
+          }
+        }
+        break;
+      default:
+        if (keys[first] == stored) {
+          slot = first;
+        }
+        else if (depth >= depthOf(entries[first])) {
+          demote(first);
+          slot = first;
+        }
+        else {
+          slot = second;
+        }
+        break;
+    }
+    keys[slot] = stored;
+    entries[slot] = pack(score, flag, depth, move);
+  }
+
+  /**
+   * Moves the entry of the first slot of a bucket into the second one, dropping the latter.
+   */
+  private void demote(int first) {
+    keys[first + 1] = keys[first];
+    entries[first + 1] = entries[first];
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0 ; i < keys.length ; i++) {
+      keys[i] = 0L;
+      entries[i] = 0;
+    }
+    probes = 0;
+    hits = 0;
+  }
+
+  /**
+   * Reads the fields of an entry returned by probe().
+   *
+   * @param entry  the packed entry.
+   * @return  value of the field in interest.
+   */
+  public static int scoreOf(int entry) {
+    return (entry & 0x7f) - SCORE_OFFSET;
+  }
+
+  public static int flagOf(int entry) {
+    return (entry >>> 7) & 0x3;
+  }
+
+  public static int depthOf(int entry) {
+    return (entry >>> 9) & 0x3f;
+  }
+
+  public static int moveOf(int entry) {
+    int move = (entry >>> 15) & 0xf;
+    return move == NO_MOVE ? -1 : move;
+  }
+
+  /**
+   * Gets the value of the indicated variables.
+   *
+   * @return  value of the variables in interest.
+   */
+  public int getCapacity() {
+    return keys.length;
+  }
+
+  public long getProbes() {
+    return probes;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  static int pack(int score, int flag, int depth, int move) {
+    return (score + SCORE_OFFSET) | (flag << 7) | (depth << 9)
+        | ((move < 0 ? NO_MOVE : move) << 15);
+  }
+
+  /**
+   * Returns the first slot of the bucket of the key. The key is spread with a multiplicative
+   * hash since neighbouring positions differ in only a few low bits.
+   */
+  int bucketOf(long key) {
+    return ((int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & bucketMask) << 1;
+  }
+}
@@ -0,0 +1,194 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the delivery of the events of the model on a thread of its own.
+ */
+public class AsyncListenerTest {
+
+  /**
+   * This is a listener recording the events it gets, which can be held up by a latch. It counts
+   * down another latch as each event starts to be delivered.
+   */
+  class RecordingListener implements ConnectFourListener {
+    private final List<String> events = new ArrayList<String>();
+    private final CountDownLatch release;
+    private final CountDownLatch delivering = new CountDownLatch(1);
+    private Player[][] lastBoard;
+
+    RecordingListener(CountDownLatch release) {
+      this.release = release;
+    }
+
+    private void record(String event) {
+      delivering.countDown();
+      try {
+        release.await();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      events.add(event);
+    }
+
+    @Override
+    public void clearBoard() {
+      record("clearBoard");
+    }
+
+    @Override
+    public void gameStarted(Mode mode) {
+      record("gameStarted:" + mode);
+    }
+
+    @Override
+    public void gameOver(Status status, Player player) {
+      record("gameOver:" + status);
+    }
+
+    @Override
+    public void updateBoard(Player[][] board, Player player, int row, int column) {
+      lastBoard = board;
+      record("updateBoard:" + row + "," + column);
+    }
+
+    @Override
+    public void moveUndone(Player[][] board, Player player, int row, int column) {
+      record("moveUndone:" + row + "," + column);
+    }
+
+    @Override
+    public void alertNotYourTurn(Player player) {
+      record("notYourTurn");
+    }
+
+    @Override
+    public void alertColumnIsFull(Player player) {
+      record("full");
+    }
+
+    @Override
+    public void disposeFrame() {
+      record("disposed");
+    }
+  }
+
+  /**
+   * Tests that a whole game is played while the listener is blocked, and that the events reach
+   * the listener in order once it is released.
+   */
+  @Test
+  public void testBlockedListenerDoesNotStallGame() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingListener recorder = new RecordingListener(release);
+    AsyncListener listener = new AsyncListener.Builder(recorder).build();
+    ConnectFourModel model = new ConnectFourModel();
+    model.register(listener);
+
+    model.startGame(Mode.MULTI);
+    int[] columns = { 0, 1, 0, 1, 0, 1, 0 };
+    for (int i = 0 ; i < columns.length ; i++) {
+      assertTrue(model.putDisc(i % 2 == 0 ? Player.ONE : Player.TWO, columns[i]));
+    }
+    assertTrue(model.getStatus() == Status.WIN);
+    assertEquals(0, listener.getDelivered());
+    assertTrue(listener.getMaxQueueDepth() >= 1);
+
+    release.countDown();
+    assertTrue(listener.awaitIdle(5000));
+    assertEquals(10, recorder.events.size());
+    assertEquals("clearBoard", recorder.events.get(0));
+    assertEquals("gameStarted:" + Mode.MULTI, recorder.events.get(1));
+    assertEquals("updateBoard:5,0", recorder.events.get(2));
+    assertEquals("gameOver:" + Status.WIN, recorder.events.get(9));
+    assertEquals(0, listener.getQueueDepth());
+    assertEquals(10, listener.getDelivered());
+    assertTrue(listener.getMaxLatencyNanos() >= listener.getAverageLatencyNanos());
+    listener.close();
+  }
+
+  /**
+   * Tests that consecutive updates waiting in the queue are delivered as the latest one, with
+   * a copy of the board as it was when that update was fired.
+   */
+  @Test
+  public void testCoalescesUpdates() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingListener recorder = new RecordingListener(release);
+    AsyncListener listener = new AsyncListener.Builder(recorder).coalesceUpdates(true).build();
+    ConnectFourModel model = new ConnectFourModel();
+    model.startGame(Mode.MULTI);
+    model.register(listener);
+
+    model.putDisc(Player.ONE, 3);
+    assertTrue(recorder.delivering.await(5, TimeUnit.SECONDS));
+    assertEquals(0, listener.getQueueDepth());
+    model.putDisc(Player.TWO, 3);
+    model.putDisc(Player.ONE, 4);
+    model.putDisc(Player.TWO, 4);
+    model.clearBoard();
+
+    release.countDown();
+    assertTrue(listener.awaitIdle(5000));
+    assertEquals(3, recorder.events.size());
+    assertEquals("updateBoard:5,3", recorder.events.get(0));
+    assertEquals("updateBoard:4,4", recorder.events.get(1));
+    assertEquals("clearBoard", recorder.events.get(2));
+    assertEquals(2, listener.getCoalesced());
+    assertTrue(recorder.lastBoard != model.getBoard());
+    assertTrue(recorder.lastBoard[4][3] == Player.TWO);
+    assertTrue(recorder.lastBoard[5][4] == Player.ONE);
+    listener.close();
+  }
+
+  /**
+   * Tests that a listener given an executor hands it one batch at a time, so that the events
+   * fired while a batch waits to run join it, and that they are delivered in order once the
+   * executor runs the tasks, as the event dispatch thread would.
+   */
+  @Test
+  public void testDeliversThroughExecutor() {
+    final List<Runnable> tasks = new ArrayList<Runnable>();
+    Executor executor = new Executor() {
+      @Override
+      public void execute(Runnable task) {
+        tasks.add(task);
+      }
+    };
+    CountDownLatch release = new CountDownLatch(0);
+    RecordingListener recorder = new RecordingListener(release);
+    AsyncListener listener = new AsyncListener.Builder(recorder).executor(executor).build();
+    ConnectFourModel model = new ConnectFourModel();
+    model.register(listener);
+
+    model.startGame(Mode.MULTI);
+    int[] columns = { 0, 1, 0, 1, 0, 1, 0 };
+    for (int i = 0 ; i < columns.length ; i++) {
+      assertTrue(model.putDisc(i % 2 == 0 ? Player.ONE : Player.TWO, columns[i]));
+    }
+    assertEquals(1, tasks.size());
+    assertEquals(0, recorder.events.size());
+
+    tasks.remove(0).run();
+    assertEquals(0, tasks.size());
+    assertEquals(10, recorder.events.size());
+    assertEquals("clearBoard", recorder.events.get(0));
+    assertEquals("gameOver:" + Status.WIN, recorder.events.get(9));
+
+    model.clearBoard();
+    model.clearBoard();
+    assertEquals(1, tasks.size());
+    tasks.remove(0).run();
+    assertEquals(12, recorder.events.size());
+    assertEquals(12, listener.getDelivered());
+    assertEquals(0, listener.getQueueDepth());
+  }
+}
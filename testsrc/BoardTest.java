@@ -0,0 +1,129 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the boards of other sizes and lengths of line than the classic
+ * game, both on their own and through the model.
+ */
+public class BoardTest {
+
+  /**
+   * Tests that the board to be used is picked from the dimensions.
+   */
+  @Test
+  public void testBoardOf() {
+    assertTrue(Board.of(6, 7, 4) instanceof BitBoard);
+    assertTrue(Board.of(7, 8, 4) instanceof ArrayBoard);
+    assertTrue(Board.of(6, 7, 5) instanceof ArrayBoard);
+  }
+
+  /**
+   * Tests that an ArrayBoard of the classic dimensions agrees with the BitBoard on every move
+   * of random games.
+   */
+  @Test
+  public void testArrayBoardAgreesWithBitBoard() {
+    Random random = new Random(42);
+    BitBoard bitBoard = new BitBoard();
+    ArrayBoard arrayBoard = new ArrayBoard(6, 7, 4);
+    for (int game = 0 ; game < 200 ; game++) {
+      bitBoard.clear();
+      arrayBoard.clear();
+      Player player = Player.ONE;
+      while (!bitBoard.isFull()) {
+        int column = random.nextInt(7);
+        assertEquals(bitBoard.columnIsFull(column), arrayBoard.columnIsFull(column));
+        if (bitBoard.columnIsFull(column)) {
+          continue;
+        }
+        boolean wins = bitBoard.isWinningMove(player, column);
+        assertEquals(wins, arrayBoard.isWinningMove(player, column));
+        assertEquals(bitBoard.play(player, column), arrayBoard.play(player, column));
+        assertEquals(bitBoard.hasWon(player), arrayBoard.hasWon(player));
+        if (wins) {
+          break;
+        }
+        player = player == Player.ONE ? Player.TWO : Player.ONE;
+      }
+      assertEquals(bitBoard.isFull(), arrayBoard.isFull());
+      for (int row = 0 ; row < 6 ; row++) {
+        for (int column = 0 ; column < 7 ; column++) {
+          assertTrue(bitBoard.getDiscAt(row, column) == arrayBoard.getDiscAt(row, column));
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests a game of connect four on a board of 7 rows and 8 columns, won on a diagonal going
+   * into the last column.
+   */
+  @Test
+  public void testSevenByEightGame() {
+    ConnectFourModel model = new ConnectFourModel(7, 8, 4);
+    assertEquals(7, model.getBoardRowLength());
+    assertEquals(8, model.getBoardColumnLength());
+    model.startGame(Mode.MULTI);
+    int[] columns = { 4, 5, 5, 6, 6, 7, 6, 7, 7, 0, 7 };
+    for (int i = 0 ; i < columns.length ; i++) {
+      assertTrue(model.getStatus() == Status.IN_PROGRESS);
+      assertTrue(model.putDisc(i % 2 == 0 ? Player.ONE : Player.TWO, columns[i]));
+    }
+    assertTrue(model.getStatus() == Status.WIN);
+    assertTrue(model.playerWins(Player.ONE));
+    assertTrue(model.checkDiagonal(Player.ONE, 6, 4));
+    assertEquals(7, model.getBoard().length);
+    assertEquals(8, model.getBoard()[0].length);
+  }
+
+  /**
+   * Tests that four discs do not win a game of connect five on a 9 by 9 board, while five do,
+   * and that a whole column can be filled.
+   */
+  @Test
+  public void testNineByNineConnectFive() {
+    ConnectFourModel model = new ConnectFourModel(9, 9, 5);
+    model.startGame(Mode.MULTI);
+    for (int column = 0 ; column < 4 ; column++) {
+      model.putDisc(Player.ONE, column);
+      model.putDisc(Player.TWO, column);
+    }
+    assertTrue(model.getStatus() == Status.IN_PROGRESS);
+    assertFalse(model.playerWins(Player.ONE));
+    assertTrue(model.isWinningMove(Player.ONE, 4));
+    model.putDisc(Player.ONE, 4);
+    assertTrue(model.getStatus() == Status.WIN);
+    assertTrue(model.checkColumn(Player.ONE, 8, 0));
+
+    model.startGame(Mode.MULTI);
+    for (int i = 0 ; i < 9 ; i++) {
+      assertTrue(model.putDisc(i % 2 == 0 ? Player.ONE : Player.TWO, 8));
+    }
+    assertTrue(model.columnIsFull(8));
+    assertEquals(-1, model.topAvailableRow(8));
+    assertTrue(model.undo());
+    assertEquals(0, model.topAvailableRow(8));
+  }
+
+  /**
+   * Tests that the AI plays on a board the search does not know, leaving the player no win.
+   */
+  @Test
+  public void testAIOnLargerBoard() {
+    ConnectFourModel model = new ConnectFourModel(7, 8, 4);
+    model.startGame(Mode.SINGLE);
+    model.putDisc(Player.ONE, 5);
+    model.putDisc(Player.ONE, 6);
+    model.putDisc(Player.ONE, 7);
+    assertTrue(model.getStatus() == Status.IN_PROGRESS);
+    assertEquals(6, model.getMoveCount());
+    for (int column = 0 ; column < 8 ; column++) {
+      assertFalse(model.isWinningMove(Player.ONE, column));
+    }
+  }
+}
@@ -1,10 +1,13 @@
 package edu.nyu.pqs.connectfour;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -64,6 +67,11 @@ public class ConnectFourModelTest {
       text = "updateBoard";
     }
   
+    @Override
+    public void moveUndone(Player[][] board, Player player, int row, int column) {
+      text = "moveUndone";
+    }
+  
     @Override
     public void alertNotYourTurn(Player player) {
       text = "notYourTurn";
@@ -141,6 +149,70 @@ public class ConnectFourModelTest {
     assertTrue(viewNotRegisteredAnymore);
   }
   
+  /**
+   * Tests that listeners can be registered and unregistered by many threads while the moves of
+   * games are being fired, and even by a listener while it is being notified.
+   */
+  @Test
+  public void testConcurrentRegistration() throws InterruptedException {
+    final int threads = 8;
+    final int listenersPerThread = 200;
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threads);
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    final List<ConnectFourViewForTest> kept = new ArrayList<ConnectFourViewForTest>();
+    model.register(new ConnectFourViewForTest() {
+      @Override
+      public void updateBoard(Player[][] board, Player player, int row, int column) {
+        ConnectFourViewForTest spectator = new ConnectFourViewForTest();
+        model.register(spectator);
+        model.unregister(spectator);
+      }
+    });
+    for (int i = 0 ; i < threads ; i++) {
+      final List<ConnectFourViewForTest> spectators = new ArrayList<ConnectFourViewForTest>();
+      for (int j = 0 ; j < listenersPerThread ; j++) {
+        spectators.add(new ConnectFourViewForTest());
+      }
+      kept.add(spectators.get(0));
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            for (ConnectFourViewForTest spectator : spectators) {
+              model.register(spectator);
+            }
+            for (int j = 1 ; j < spectators.size() ; j++) {
+              model.unregister(spectators.get(j));
+            }
+          }
+          catch (Throwable e) {
+            failure.set(e);
+          }
+          finally {
+            done.countDown();
+          }
+        }
+      }).start();
+    }
+    
+    start.countDown();
+    while (done.getCount() > 0) {
+      model.startGame(multiMode);
+      for (int i = 0 ; i < 42 && model.getStatus() == Status.IN_PROGRESS ; i++) {
+        model.putDisc(i % 2 == 0 ? player1 : player2, (i * 3) % 7);
+      }
+    }
+    done.await();
+    assertTrue(failure.get() == null);
+    assertEquals(3 + threads, model.getNumListeners());
+    model.startGame(multiMode);
+    for (ConnectFourViewForTest spectator : kept) {
+      assertTrue(spectator.text.equals("gameStarted:" + multiMode));
+    }
+  }
+  
   /**
    * Tests start() in ConnectFourModel which will set the mode of the game, create an empty
    * board, and call fireGameStarted() which will send the notification to gameStarted() to view.
@@ -154,17 +226,146 @@ public class ConnectFourModelTest {
       assertEquals(board, model.getBoard());
       assertTrue(model.getPreviousTurn() == Player.EMPTY);
       assertTrue(view.text.equals("gameStarted:" + mode));
+      assertTrue(model.getStatus() == Status.IN_PROGRESS);
+      assertTrue(model.getNumListeners() == 2);
       if (mode == Mode.SINGLE) {
         assertTrue(model.isSinglePlayer());
-        assertTrue(model.getNumListeners() == 1);
       }
       else {
         assertFalse(model.isSinglePlayer());
-        assertTrue(model.getNumListeners() == 2);
       }
     }   
   }
   
+  /**
+   * Tests that a second model has listeners and a board of its own, so that creating it does
+   * not take anything away from the first model.
+   */
+  @Test
+  public void testModelsAreIndependent() {
+    ConnectFourModel otherModel = new ConnectFourModel();
+    ConnectFourViewForTest otherView = new ConnectFourViewForTest();
+    otherModel.register(otherView);
+    assertTrue(model.getNumListeners() == 2);
+    assertTrue(otherModel.getNumListeners() == 1);
+    
+    otherModel.startGame(multiMode);
+    otherModel.putDisc(player1, 3);
+    assertTrue(otherView.text.equals("updateBoard"));
+    assertTrue(view.text.equals(""));
+    assertTrue(model.getDiscAt(5, 3) == empty);
+    assertTrue(otherModel.getDiscAt(5, 3) == player1);
+  }
+  
+  /**
+   * Tests that a whole game can be played without any graphical component: the game is
+   * started, moves are applied until a player wins, and the result is read from the model.
+   */
+  @Test
+  public void testHeadlessGame() {
+    model.startGame(multiMode);
+    int[] columns = { 0, 1, 0, 1, 0, 1 };
+    for (int i = 0 ; i < columns.length ; i++) {
+      assertTrue(model.putDisc(i % 2 == 0 ? player1 : player2, columns[i]));
+      assertTrue(model.getStatus() == Status.IN_PROGRESS);
+    }
+    assertTrue(model.putDisc(player1, 0));
+    assertTrue(model.getStatus() == Status.WIN);
+    assertTrue(view.text.equals("win:" + player1));
+    assertEquals(7, model.getMoveCount());
+  }
+  
+  /**
+   * Tests that no move can be played once a game is over, by either player, until the
+   * winning move is taken back.
+   */
+  @Test
+  public void testNoMoveAfterGameOver() {
+    model.startGame(multiMode);
+    int[] columns = { 0, 1, 0, 1, 0, 1, 0 };
+    for (int i = 0 ; i < columns.length ; i++) {
+      assertTrue(model.putDisc(i % 2 == 0 ? player1 : player2, columns[i]));
+    }
+    assertTrue(model.getStatus() == Status.WIN);
+    assertFalse(model.putDisc(player2, 2));
+    assertFalse(model.putDisc(player1, 2));
+    assertTrue(model.getDiscAt(5, 2) == empty);
+    assertEquals(7, model.getMoveCount());
+    assertTrue(model.getStatus() == Status.WIN);
+    
+    assertTrue(model.undo());
+    assertTrue(model.putDisc(player1, 2));
+    assertTrue(model.getDiscAt(5, 2) == player1);
+  }
+  
+  /**
+   * Tests undo() by taking back the winning move of a game and the moves before it, checking
+   * that the cells, the turn and the status are restored each time.
+   */
+  @Test
+  public void testUndo() {
+    model.startGame(multiMode);
+    assertFalse(model.undo());
+    int[] columns = { 3, 2, 3, 2, 3, 2, 3 };
+    for (int i = 0 ; i < columns.length ; i++) {
+      model.putDisc(i % 2 == 0 ? player1 : player2, columns[i]);
+    }
+    assertTrue(model.getStatus() == Status.WIN);
+    
+    assertTrue(model.undo());
+    assertTrue(view.text.equals("moveUndone"));
+    assertTrue(model.getStatus() == Status.IN_PROGRESS);
+    assertTrue(model.getPreviousTurn() == player2);
+    assertTrue(model.getDiscAt(2, 3) == empty);
+    assertTrue(model.getBoard()[2][3] == empty);
+    
+    assertTrue(model.undo());
+    assertTrue(model.getPreviousTurn() == player1);
+    assertTrue(model.getDiscAt(3, 2) == empty);
+    assertTrue(model.putDisc(player2, 2));
+    assertTrue(model.getDiscAt(3, 2) == player2);
+    
+    while (model.undo()) {
+    }
+    assertEquals(createEmptyBoard(), model.getBoard());
+    assertTrue(model.getPreviousTurn() == empty);
+  }
+  
+  /**
+   * Tests redo() by playing again the moves of a won game once they have all been taken back,
+   * and that a new move drops the moves that had been taken back.
+   */
+  @Test
+  public void testRedo() {
+    model.startGame(multiMode);
+    assertFalse(model.redo());
+    int[] columns = { 3, 2, 3, 2, 3, 2, 3 };
+    for (int i = 0 ; i < columns.length ; i++) {
+      model.putDisc(i % 2 == 0 ? player1 : player2, columns[i]);
+    }
+    while (model.undo()) {
+    }
+    assertEquals(0, model.getMoveCount());
+    
+    for (int i = 0 ; i < columns.length - 1 ; i++) {
+      assertTrue(model.redo());
+      assertTrue(view.text.equals("updateBoard"));
+    }
+    assertTrue(model.getPreviousTurn() == player2);
+    assertTrue(model.redo());
+    assertTrue(view.text.equals("win:" + player1));
+    assertTrue(model.getStatus() == Status.WIN);
+    assertTrue(model.getPreviousTurn() == player1);
+    assertFalse(model.redo());
+    assertArrayEquals(columns, model.getMoveHistory());
+    
+    assertTrue(model.undo());
+    assertTrue(model.undo());
+    assertTrue(model.putDisc(player2, 4));
+    assertFalse(model.redo());
+    assertArrayEquals(new int[] { 3, 2, 3, 2, 3, 4 }, model.getMoveHistory());
+  }
+  
   /**
    * Tests playerTies() and checkStatus() by passing a board that has been filled with no
    * four consecutive cells. (no winner)
@@ -214,19 +415,23 @@ public class ConnectFourModelTest {
   
   /**
    * Tests putDisc() by putting discs when there are empty columns, filling all slots with player1
-   * and player2's discs respectively and checking if they are in the correct position.
+   * and player2's discs and checking if they are in the correct position. The discs alternate
+   * every column and every two rows, so no four are connected before the board is full.
    */
   @Test
   public void testPutDiscWhenColumnIsAvailable() {
     for (Player player : players) {
+      Player other = player == player1 ? player2 : player1;
       model.clearBoard();
       for (int row = model.getBoardRowLength()-1 ; row >= 0 ; row--) {
         for (int column = 0 ; column < model.getBoardColumnLength() ; column++) {
-          alternateTurn(player);
-          model.putDisc(player, column); 
-          assertTrue(model.getDiscAt(row, column) == player);
+          Player disc = (row / 2 + column) % 2 == 0 ? player : other;
+          alternateTurn(disc);
+          assertTrue(model.putDisc(disc, column));
+          assertTrue(model.getDiscAt(row, column) == disc);
         }
       } 
+      assertTrue(model.getStatus() == Status.DRAWN);
     }
   }
   
@@ -362,6 +567,28 @@ public class ConnectFourModelTest {
       assertTrue(model.playerWins(playerAI));
   }
 
+  /**
+   * Tests isWinningMove() by checking that only the moves that complete four discs through the
+   * placed disc are reported, in every direction.
+   */
+  @Test
+  public void testIsWinningMove() {
+    Player[][] board = new Player[][] {
+      { empty, empty, empty, empty, empty, empty, empty },
+      { empty, empty, empty, empty, empty, empty, empty },
+      { empty, empty, empty, player2, empty, empty, empty },
+      { empty, empty, player2, player1, empty, empty, player1 },
+      { empty, player2, player1, player1, empty, empty, player1 },
+      { empty, player1, player1, player2, empty, empty, player1 } };
+      model.setBoard(board);
+      assertFalse(model.isWinningMove(player1, 0));
+      assertTrue(model.isWinningMove(player1, 6));
+      assertTrue(model.isWinningMove(player2, 0));
+      assertFalse(model.isWinningMove(player1, 4));
+      assertFalse(model.isWinningMove(player2, 6));
+      assertFalse(model.isWinningMove(player1, 3));
+  }
+
   /**
    * Tests topAvailableRow() by getting the top index for columns of different heights.
    */
@@ -512,6 +739,26 @@ public class ConnectFourModelTest {
     assertEquals(model.getDiscAt(row, column), Player.TWO);  
   }
   
+  /**
+   * Tests that the board returned by getBoard() follows the discs put by putDisc() and
+   * setDiscAt() once it has been handed out, and that setDiscAt() restacks the column.
+   */
+  @Test
+  public void testGetBoardFollowsMoves() {
+    model.clearBoard();
+    Player[][] board = model.getBoard();
+    alternateTurn(player1);
+    model.putDisc(player1, 3);
+    assertEquals(player1, board[5][3]);
+    alternateTurn(player2);
+    model.putDisc(player2, 3);
+    assertEquals(player2, board[4][3]);
+    assertEquals(3, model.topAvailableRow(3));
+    model.setDiscAt(empty, 4, 3);
+    assertEquals(empty, board[4][3]);
+    assertEquals(4, model.topAvailableRow(3));
+  }
+
   /**
    * Creates an empty board that will be used for testing purposes.
    * 
@@ -0,0 +1,151 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is a class that tests generating, writing and consulting the endgame database.
+ */
+public class EndgameDatabaseTest {
+
+  private Path file;
+
+  @Before
+  public void setup() throws IOException {
+    file = Files.createTempFile("endgame", ".db");
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  /**
+   * Tests that every record generated is found again in the compressed file, across blocks of
+   * several sizes, that the file is smaller than the records, and that other positions are
+   * not found.
+   */
+  @Test
+  public void testWriteAndFind() throws IOException {
+    EndgameDatabaseGenerator generator = new EndgameDatabaseGenerator(8);
+    generator.addRandomGames(200, 5);
+    long[] records = generator.getRecords();
+    assertTrue(generator.getRoots() > 0);
+    assertEquals(generator.getSize(), records.length);
+    long[] keys = new long[records.length];
+    for (int i = 0 ; i < records.length ; i++) {
+      keys[i] = OpeningBook.keyOf(records[i]);
+    }
+    for (int blockRecords : new int[] { 1, 7, EndgameDatabase.BLOCK_RECORDS }) {
+      EndgameDatabase.write(file, records.clone(), 8, blockRecords);
+      EndgameDatabase database = EndgameDatabase.open(file);
+      assertEquals(records.length, database.getSize());
+      assertEquals(8, database.getEmptyCells());
+      for (long record : records) {
+        long key = OpeningBook.keyOf(record);
+        assertEquals(record, database.find(key));
+        assertEquals(Arrays.binarySearch(keys, key + 1) >= 0,
+            database.find(key + 1) != EndgameDatabase.NOT_FOUND);
+      }
+    }
+    EndgameDatabase database = EndgameDatabase.open(file);
+    assertTrue(database.getFileBytes() < 8L * records.length);
+    assertEquals(EndgameDatabase.NOT_FOUND, database.find(new Position().key()));
+  }
+
+  /**
+   * Tests that the scores and moves of the database agree with a search to the end of the
+   * game, for positions and their mirror images alike.
+   */
+  @Test
+  public void testScoresAgreeWithSearch() throws IOException {
+    EndgameDatabaseGenerator generator = new EndgameDatabaseGenerator(10);
+    generator.addRandomGames(300, 11);
+    long[] records = generator.getRecords();
+    assertTrue(records.length > 1000);
+    EndgameDatabase.write(file, records.clone(), 10);
+    EndgameDatabase database = EndgameDatabase.open(file);
+    NegamaxStrategy search = new NegamaxStrategy.Builder().timeBudgetMillis(0).build();
+    for (int i = 0 ; i < records.length ; i += 97) {
+      Position canonical = new Position();
+      canonical.decode(OpeningBook.keyOf(records[i]));
+      Position mirror = new Position();
+      mirror.decode(canonical.mirroredKey());
+      for (Position position : new Position[] { canonical, mirror }) {
+        long record = database.find(position.canonicalKey());
+        assertEquals(records[i], record);
+        search.chooseColumn(position);
+        assertEquals(search.getScore(), OpeningBook.scoreOf(record));
+        int column = position.canonicalColumn(OpeningBook.moveOf(record));
+        if (!position.isWinningMove(column) && position.getMoves() + 1 < Position.SIZE) {
+          position.play(column);
+          search.chooseColumn(position);
+          assertEquals(-OpeningBook.scoreOf(record), search.getScore());
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that the strategy plays the database move in the late game only, and asks its
+   * fallback otherwise.
+   */
+  @Test
+  public void testStrategyConsultsDatabase() throws IOException {
+    EndgameDatabaseGenerator generator = new EndgameDatabaseGenerator(8);
+    generator.addRandomGames(50, 9);
+    long[] records = generator.getRecords();
+    assertTrue(records.length > 0);
+    EndgameDatabase.write(file, records, 8);
+    MoveStrategy fallback = new MoveStrategy() {
+      @Override
+      public int chooseColumn(Position position) {
+        return -1;
+      }
+    };
+    EndgameDatabaseStrategy strategy =
+        new EndgameDatabaseStrategy(EndgameDatabase.open(file), fallback);
+    Position position = new Position();
+    position.decode(OpeningBook.keyOf(records[records.length / 2]));
+    int column = strategy.chooseColumn(position);
+    assertTrue(position.canPlay(column));
+    assertEquals(1, strategy.getDatabaseMoves());
+    assertEquals(-1, strategy.chooseColumn(new Position()));
+    assertEquals(1, strategy.getDatabaseMoves());
+  }
+
+  /**
+   * Tests that a file cut short anywhere past its header is rejected when it is opened, rather
+   * than failing a lookup later.
+   */
+  @Test
+  public void testTruncatedFile() throws IOException {
+    EndgameDatabaseGenerator generator = new EndgameDatabaseGenerator(8);
+    generator.addRandomGames(20, 13);
+    EndgameDatabase.write(file, generator.getRecords(), 8);
+    long bytes = EndgameDatabase.open(file).getFileBytes();
+    long[] lengths = { bytes - 1, bytes - 8, bytes / 2, EndgameDatabase.HEADER_BYTES + 1 };
+    for (long length : lengths) {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.truncate(length);
+      }
+      try {
+        EndgameDatabase.open(file);
+        fail("opened a file cut to " + length + " bytes");
+      }
+      catch (IOException e) {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the memory-mapped archive of games and its index.
+ */
+public class GameArchiveTest {
+
+  private Path file;
+  private final List<GameRecord> games = new ArrayList<GameRecord>();
+
+  @Before
+  public void setup() throws IOException {
+    file = Files.createTempFile("archive", ".c4g");
+    Files.delete(file);
+    appendGames(2000, new Random(11));
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    Files.deleteIfExists(file);
+    Files.deleteIfExists(GameArchive.indexFileOf(file));
+  }
+
+  /**
+   * Tests that every game is fetched by its number and walked over by a cursor, with segments
+   * small enough that many records lie in the overlap of two segments.
+   */
+  @Test
+  public void testRandomAccessAndScan() throws IOException {
+    for (int segmentBytes : new int[] { 256, GameArchive.SEGMENT_BYTES }) {
+      Files.deleteIfExists(GameArchive.indexFileOf(file));
+      GameArchive archive = GameArchive.open(file, segmentBytes);
+      assertEquals(games.size(), archive.size());
+      for (int i = games.size() - 1 ; i >= 0 ; i -= 7) {
+        assertEquals(games.get(i), archive.get(i));
+      }
+      GameArchive.Cursor cursor = archive.cursor();
+      for (int i = 0 ; i < games.size() ; i++) {
+        assertTrue(cursor.next());
+        GameRecord game = games.get(i);
+        assertEquals(i, cursor.getGame());
+        assertEquals(game.getMoveCount(), cursor.getMoveCount());
+        assertTrue(game.getStatus() == cursor.getStatus());
+        assertTrue(game.getWinner() == cursor.getWinner());
+        assertEquals(game.getStartTime(), cursor.getStartTime());
+        int last = game.getMoveCount() - 1;
+        assertEquals(game.getColumn(last), cursor.getColumn(last));
+        assertTrue(game.getPlayer(last) == cursor.getPlayer(last));
+        assertEquals(game, cursor.toRecord());
+      }
+      assertFalse(cursor.next());
+    }
+  }
+
+  /**
+   * Tests that a cursor over a range starts at its first game and stops after its last.
+   */
+  @Test
+  public void testCursorRange() throws IOException {
+    GameArchive archive = GameArchive.open(file, 512);
+    GameArchive.Cursor cursor = archive.cursor(1500, 1503);
+    for (int i = 1500 ; i < 1503 ; i++) {
+      assertTrue(cursor.next());
+      assertEquals(games.get(i), cursor.toRecord());
+    }
+    assertFalse(cursor.next());
+    assertFalse(archive.cursor(10, 10).next());
+    try {
+      archive.get(games.size());
+      fail("there is no such game");
+    }
+    catch (IndexOutOfBoundsException e) {
+      assertTrue(e.getMessage().startsWith("game"));
+    }
+  }
+
+  /**
+   * Tests that the index is written again once games have been appended to the file, and that
+   * a file cut in the middle of a record is reported.
+   */
+  @Test
+  public void testIndexFollowsFile() throws IOException {
+    assertEquals(games.size(), GameArchive.open(file).size());
+    appendGames(10, new Random(12));
+    GameArchive archive = GameArchive.open(file);
+    assertEquals(games.size(), archive.size());
+    assertEquals(games.get(games.size() - 1), archive.get(games.size() - 1));
+
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+    try {
+      GameArchive.open(file);
+      fail("the last record is truncated");
+    }
+    catch (IOException e) {
+      assertTrue(e.getMessage().startsWith("Truncated"));
+    }
+  }
+
+  /**
+   * Appends random games, half of them in single-player mode, to the file and to the list.
+   */
+  private void appendGames(int count, Random random) throws IOException {
+    ConnectFourModel model = new ConnectFourModel();
+    try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+      for (int i = 0 ; i < count ; i++) {
+        int[] columns = new int[1 + random.nextInt(42)];
+        for (int j = 0 ; j < columns.length ; j++) {
+          columns[j] = random.nextInt(7);
+        }
+        GameRecord game = GameRecord.of(6, 7, 4, i % 2 == 0 ? Mode.SINGLE : Mode.MULTI,
+            Status.values()[random.nextInt(3)], i % 3 == 0 ? Player.TWO : Player.ONE,
+            random.nextLong() >>> 1, 0, columns);
+        writer.write(game);
+        games.add(game);
+      }
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the records of games and the files they are written to.
+ */
+public class GameRecordTest {
+
+  private Path file;
+
+  @Before
+  public void setup() throws IOException {
+    file = Files.createTempFile("games", ".c4g");
+    Files.delete(file);
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  /**
+   * Tests that the record of a game played on the model holds its moves, players and outcome,
+   * and that it is encoded in a header and half a byte per move.
+   */
+  @Test
+  public void testRecordOfModel() {
+    ConnectFourModel model = new ConnectFourModel();
+    model.startGame(Mode.MULTI);
+    int[] columns = { 3, 2, 3, 2, 3, 2, 3 };
+    for (int i = 0 ; i < columns.length ; i++) {
+      model.putDisc(i % 2 == 0 ? Player.TWO : Player.ONE, columns[i]);
+    }
+    GameRecord record = model.toRecord();
+    assertArrayEquals(columns, record.getColumns());
+    assertTrue(record.getStatus() == Status.WIN);
+    assertTrue(record.getMode() == Mode.MULTI);
+    assertTrue(record.getFirstPlayer() == Player.TWO);
+    assertTrue(record.getPlayer(1) == Player.ONE);
+    assertTrue(record.getWinner() == Player.TWO);
+    assertTrue(record.getEndTime() >= record.getStartTime());
+    assertEquals(GameRecord.HEADER_BYTES + 4, record.encodedLength());
+
+    ByteBuffer buffer = ByteBuffer.allocate(record.encodedLength());
+    record.writeTo(buffer);
+    assertTrue(!buffer.hasRemaining());
+    buffer.flip();
+    assertEquals(record, GameRecord.readFrom(buffer));
+
+    model.startGame(Mode.SINGLE);
+    model.putDisc(Player.ONE, 0);
+    record = model.toRecord();
+    assertEquals(2, record.getMoveCount());
+    assertTrue(record.getPlayer(1) == Player.AI);
+    assertTrue(record.getStatus() == Status.IN_PROGRESS);
+    assertTrue(record.getWinner() == Player.EMPTY);
+  }
+
+  /**
+   * Tests that random games are read back in order after being appended to a file in two
+   * sessions, and that a record cut short is reported.
+   */
+  @Test
+  public void testAppendAndRead() throws IOException {
+    Random random = new Random(7);
+    ConnectFourModel model = new ConnectFourModel();
+    GameRecord[] records = new GameRecord[5000];
+    for (int i = 0 ; i < records.length ; i++) {
+      records[i] = randomGame(model, random);
+    }
+    for (int session = 0 ; session < 2 ; session++) {
+      try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+        for (int i = session * records.length / 2 ; i < (session + 1) * records.length / 2 ;
+            i++) {
+          writer.write(records[i]);
+        }
+        assertEquals(records.length / 2, writer.getCount());
+      }
+    }
+    try (GameRecordReader reader = GameRecordReader.open(file)) {
+      for (int i = 0 ; i < records.length ; i++) {
+        assertEquals(records[i], reader.read());
+      }
+      assertNull(reader.read());
+    }
+
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+    try (GameRecordReader reader = GameRecordReader.open(file)) {
+      for (int i = 0 ; i < records.length - 1 ; i++) {
+        reader.read();
+      }
+      reader.read();
+      fail("the last record is truncated");
+    }
+    catch (IOException e) {
+      assertTrue(e.getMessage().startsWith("Truncated"));
+    }
+  }
+
+  /**
+   * Tests that a file whose last record was cut short by a crash is cut back to its last
+   * complete record when it is opened again, so the games appended afterwards can be read.
+   */
+  @Test
+  public void testAppendAfterTruncatedRecord() throws IOException {
+    Random random = new Random(11);
+    ConnectFourModel model = new ConnectFourModel();
+    GameRecord[] records = new GameRecord[100];
+    for (int i = 0 ; i < records.length ; i++) {
+      records[i] = randomGame(model, random);
+    }
+    try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+      for (int i = 0 ; i < records.length - 1 ; i++) {
+        writer.write(records[i]);
+      }
+    }
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+    try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+      writer.write(records[records.length - 1]);
+    }
+    try (GameRecordReader reader = GameRecordReader.open(file)) {
+      for (int i = 0 ; i < records.length - 2 ; i++) {
+        assertEquals(records[i], reader.read());
+      }
+      assertEquals(records[records.length - 1], reader.read());
+      assertNull(reader.read());
+    }
+  }
+
+  /**
+   * Plays a random game on the model until it ends.
+   */
+  private GameRecord randomGame(ConnectFourModel model, Random random) {
+    model.startGame(Mode.MULTI);
+    Player player = Player.ONE;
+    while (model.getStatus() == Status.IN_PROGRESS) {
+      int column = random.nextInt(7);
+      if (model.putDisc(player, column)) {
+        player = player == Player.ONE ? Player.TWO : Player.ONE;
+      }
+    }
+    return model.toRecord();
+  }
+}
@@ -0,0 +1,122 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the Monte Carlo tree search, on the classic board and on others.
+ */
+public class MctsStrategyTest {
+
+  /**
+   * Tests that the search takes a win at once and blocks a win of the opponent.
+   */
+  @Test
+  public void testWinsAndBlocks() {
+    MctsStrategy mcts = new MctsStrategy.Builder().timeBudgetMillis(0).maxIterations(5000)
+        .seed(1).build();
+    assertEquals(3, mcts.chooseColumn(Position.of(0, 0, 1, 1, 2, 2)));
+    assertEquals(0, mcts.getIterations());
+    assertEquals(3, mcts.chooseColumn(Position.of(3, 0, 3, 6, 3)));
+    assertEquals(5000, mcts.getIterations());
+    assertTrue(mcts.getNodeCount() > 7);
+  }
+
+  /**
+   * Tests that a seeded search on a single thread with a budget of iterations plays the same
+   * move with the same visits again.
+   */
+  @Test
+  public void testSeededSearchRepeats() {
+    int[] visits = new int[7];
+    int column = -1;
+    for (int run = 0 ; run < 2 ; run++) {
+      MctsStrategy mcts = new MctsStrategy.Builder().timeBudgetMillis(0).maxIterations(3000)
+          .heuristicPlayouts(false).seed(42).build();
+      int chosen = mcts.chooseColumn(Position.of(3, 3, 2));
+      for (int i = 0 ; i < 7 ; i++) {
+        if (run == 1) {
+          assertEquals(visits[i], mcts.getVisits(i));
+        }
+        visits[i] = mcts.getVisits(i);
+      }
+      assertTrue(run == 0 || chosen == column);
+      column = chosen;
+    }
+  }
+
+  /**
+   * Tests that the threads share the iterations, and that every virtual loss is taken back:
+   * the root is visited once per iteration, and its children at most as often, since a thread
+   * finding the root being expanded plays out from the root itself.
+   */
+  @Test
+  public void testParallelVirtualLoss() {
+    MctsStrategy mcts = new MctsStrategy.Builder().timeBudgetMillis(0).maxIterations(20000)
+        .threads(4).build();
+    mcts.chooseColumn(Position.of(3));
+    assertEquals(20000, mcts.getIterations());
+    int visits = 0;
+    for (int column = 0 ; column < 7 ; column++) {
+      visits += mcts.getVisits(column);
+    }
+    assertEquals(20000, mcts.getRootVisits());
+    assertTrue(visits <= 20000);
+    mcts.shutdown();
+  }
+
+  /**
+   * Tests that the subtree of the position reached after the move chosen and a reply is kept
+   * for the next search, and that a position reached otherwise starts a new tree.
+   */
+  @Test
+  public void testTreeReuse() {
+    MctsStrategy mcts = new MctsStrategy.Builder().timeBudgetMillis(0).maxIterations(5000)
+        .seed(7).build();
+    int column = mcts.chooseColumn(Position.of(3));
+    assertEquals(0, mcts.getReusedNodes());
+    assertEquals(mcts.getNodeCount(), mcts.getNodesAllocated());
+    int reply = column == 0 ? 1 : 0;
+    mcts.chooseColumn(Position.of(3, column, reply));
+    assertTrue(mcts.getReusedNodes() > 1);
+    assertEquals(mcts.getNodeCount(), mcts.getReusedNodes() + mcts.getNodesAllocated());
+    assertTrue(mcts.getGcMillis() >= 0);
+    mcts.chooseColumn(Position.of(2, 4, 2, 4));
+    assertEquals(0, mcts.getReusedNodes());
+  }
+
+  /**
+   * Tests that the search still plays a legal move once the arena is full.
+   */
+  @Test
+  public void testFullArena() {
+    MctsStrategy mcts = new MctsStrategy.Builder().timeBudgetMillis(0).maxIterations(2000)
+        .arenaNodes(50).build();
+    int column = mcts.chooseColumn(Position.of(3, 3));
+    assertTrue(column >= 0 && column < 7);
+    assertEquals(2000, mcts.getIterations());
+    assertTrue(mcts.getNodeCount() <= 50);
+    assertTrue(mcts.getArenaOccupancy() > 0.5 && mcts.getArenaOccupancy() <= 1);
+  }
+
+  /**
+   * Tests that the AI of a model on a larger board blocks a win within its time budget.
+   */
+  @Test
+  public void testBlocksOnLargerBoardWithinBudget() {
+    ConnectFourModel model = new ConnectFourModel(7, 9, 4);
+    model.setAIStrategy(new MctsStrategy.Builder().timeBudgetMillis(100).threads(2).build());
+    model.startGame(Mode.SINGLE);
+    for (int i = 0 ; i < 3 ; i++) {
+      long start = System.nanoTime();
+      model.putDisc(Player.ONE, 0);
+      assertTrue(System.nanoTime() - start < 1000000000L);
+    }
+    assertEquals(6, model.getMoveCount());
+    assertTrue(model.getStatus() == Status.IN_PROGRESS);
+    assertFalse(model.isWinningMove(Player.ONE, 0));
+    ((MctsStrategy) model.getAIStrategy()).shutdown();
+  }
+}
@@ -0,0 +1,85 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the search engine used by the AI in single-player mode.
+ */
+public class NegamaxStrategyTest {
+
+  /**
+   * Tests that the strategy plays the move that wins right away.
+   */
+  @Test
+  public void testPlaysWinningMove() {
+    Position position = Position.of(0, 1, 0, 1, 0, 1);
+    NegamaxStrategy strategy = new NegamaxStrategy.Builder().maxDepth(8).build();
+    assertEquals(0, strategy.chooseColumn(position));
+  }
+
+  /**
+   * Tests that the strategy blocks the column where the opponent would connect four.
+   */
+  @Test
+  public void testBlocksOpponentWin() {
+    Position position = Position.of(6, 3, 6, 2, 6);
+    NegamaxStrategy strategy = new NegamaxStrategy.Builder().maxDepth(8).build();
+    assertEquals(6, strategy.chooseColumn(position));
+  }
+
+  /**
+   * Tests that the strategy finds the open three on the bottom row that cannot be stopped.
+   */
+  @Test
+  public void testFindsForcedWin() {
+    Position position = Position.of(3, 3, 2, 2);
+    NegamaxStrategy strategy = new NegamaxStrategy.Builder().maxDepth(6).build();
+    int column = strategy.chooseColumn(position);
+    assertTrue(column == 1 || column == 4);
+  }
+
+  /**
+   * Tests that the search stops at its node budget and still returns a playable column,
+   * leaving the position as it was.
+   */
+  @Test
+  public void testRespectsNodeBudget() {
+    Position position = Position.of(3, 3);
+    long key = position.key();
+    NegamaxStrategy strategy = new NegamaxStrategy.Builder().nodeBudget(500)
+        .timeBudgetMillis(0).build();
+    int column = strategy.chooseColumn(position);
+    assertTrue(position.canPlay(column));
+    assertTrue(strategy.getNodeCount() <= 500);
+    assertEquals(key, position.key());
+  }
+
+  /**
+   * Tests that the search split among threads at the root finds the same forced win, blocks
+   * the opponent, and reports its speed.
+   */
+  @Test
+  public void testRootSplitSearch() {
+    RootSplitStrategy strategy = new RootSplitStrategy.Builder().threads(4).maxDepth(8)
+        .timeBudgetMillis(0).transpositionTableMegabytes(4).build();
+    int column = strategy.chooseColumn(Position.of(3, 3, 2, 2));
+    assertTrue(column == 1 || column == 4);
+    assertTrue(strategy.getNodeCount() > 0);
+    assertTrue(strategy.getNodesPerSecond() > 0);
+    assertEquals(6, strategy.chooseColumn(Position.of(6, 3, 6, 2, 6)));
+    strategy.shutdown();
+  }
+
+  /**
+   * Tests that the center column is searched first.
+   */
+  @Test
+  public void testCenterFirstOrder() {
+    int[] order = { 3, 2, 4, 1, 5, 0, 6 };
+    for (int i = 0 ; i < order.length ; i++) {
+      assertEquals(order[i], NegamaxStrategy.COLUMN_ORDER[i]);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is a class that tests writing, mapping and consulting the opening book.
+ */
+public class OpeningBookTest {
+
+  private Path file;
+
+  @Before
+  public void setup() throws IOException {
+    file = Files.createTempFile("opening", ".book");
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  /**
+   * Tests that every record written can be found again, whatever order it was written in,
+   * and that other positions are not found.
+   */
+  @Test
+  public void testWriteAndFind() throws IOException {
+    long[] keys = {
+        Position.of(3).key(), Position.of().key(), Position.of(3, 3, 2).key(),
+        Position.of(0, 6).key() };
+    long[] records = new long[keys.length];
+    for (int i = 0 ; i < keys.length ; i++) {
+      records[i] = OpeningBook.record(keys[i], i, i - 2);
+    }
+    OpeningBook.write(file, records);
+    OpeningBook book = OpeningBook.open(file);
+    assertEquals(keys.length, book.getSize());
+    for (int i = 0 ; i < keys.length ; i++) {
+      long record = book.find(keys[i]);
+      assertEquals(i, OpeningBook.moveOf(record));
+      assertEquals(i - 2, OpeningBook.scoreOf(record));
+    }
+    assertEquals(OpeningBook.NOT_FOUND, book.find(Position.of(1).key()));
+  }
+
+  /**
+   * Tests that the generator books every opening position, and that the strategy plays the
+   * book move without searching.
+   */
+  @Test
+  public void testGeneratedBookIsConsulted() throws IOException {
+    NegamaxStrategy search = new NegamaxStrategy.Builder().maxDepth(4).build();
+    OpeningBook.write(file, new OpeningBookGenerator(2, search).generate());
+    OpeningBook book = OpeningBook.open(file);
+    assertEquals(1 + 4 + 25, book.getSize());
+
+    MoveStrategy fallback = new MoveStrategy() {
+      @Override
+      public int chooseColumn(Position position) {
+        return -1;
+      }
+    };
+    OpeningBookStrategy strategy = new OpeningBookStrategy(book, fallback);
+    Position position = new Position();
+    position.play(3);
+    int column = strategy.chooseColumn(position);
+    assertTrue(position.canPlay(column));
+    assertEquals(1, strategy.getBookMoves());
+    position.play(column);
+    position.play(column);
+    assertEquals(-1, strategy.chooseColumn(position));
+
+    Position left = new Position();
+    left.play(1);
+    Position right = new Position();
+    right.play(5);
+    assertEquals(6 - strategy.chooseColumn(left), strategy.chooseColumn(right));
+    assertEquals(3, strategy.getBookMoves());
+  }
+
+  /**
+   * Tests that a position can be rebuilt from its key.
+   */
+  @Test
+  public void testDecodeKey() {
+    Position position = Position.of(3, 3, 2, 6, 6, 6);
+    Position decoded = new Position();
+    decoded.decode(position.key());
+    assertEquals(position.getCurrent(), decoded.getCurrent());
+    assertEquals(position.getMask(), decoded.getMask());
+    assertEquals(position.getMoves(), decoded.getMoves());
+  }
+
+  /**
+   * Tests that a file that is not a book is refused.
+   */
+  @Test(expected = IOException.class)
+  public void testRejectsOtherFiles() throws IOException {
+    Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+    OpeningBook.open(file);
+  }
+}
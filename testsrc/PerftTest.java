@@ -0,0 +1,53 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the rules of the game by counting the sequences of moves from the
+ * empty board against the reference counts.
+ */
+public class PerftTest {
+
+  /**
+   * Tests the counts of the model, and that the model is left as it was.
+   */
+  @Test
+  public void testModelCounts() {
+    ConnectFourModel model = new ConnectFourModel();
+    model.startGame(Mode.MULTI);
+    for (int depth = 0 ; depth <= 7 ; depth++) {
+      assertEquals(Perft.REFERENCE_COUNTS[depth], Perft.perft(model, depth));
+    }
+    assertEquals(0, model.getMoveCount());
+    assertTrue(model.getPreviousTurn() == Player.EMPTY);
+    assertTrue(model.getStatus() == Status.IN_PROGRESS);
+  }
+
+  /**
+   * Tests the counts of the position searched by the AI.
+   */
+  @Test
+  public void testPositionCounts() {
+    for (int depth = 0 ; depth <= 8 ; depth++) {
+      assertEquals(Perft.REFERENCE_COUNTS[depth], Perft.perft(new Position(), depth));
+    }
+  }
+
+  /**
+   * Tests the counts of a board of other dimensions, which has no win before its seventh move,
+   * and of a column that fills up before the end.
+   */
+  @Test
+  public void testOtherBoards() {
+    ConnectFourModel model = new ConnectFourModel(7, 8, 4);
+    model.startGame(Mode.MULTI);
+    assertEquals(8L * 8 * 8 * 8 * 8 * 8, Perft.perft(model, 6));
+
+    model = new ConnectFourModel(2, 1, 4);
+    model.startGame(Mode.MULTI);
+    assertEquals(1, Perft.perft(model, 2));
+    assertEquals(0, Perft.perft(model, 3));
+  }
+}
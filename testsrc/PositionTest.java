@@ -0,0 +1,37 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the keys of the bitboard position used by the search.
+ */
+public class PositionTest {
+
+  /**
+   * Tests that a position and its mirror image share their canonical key, and that the columns
+   * of the position that is not canonical are mirrored.
+   */
+  @Test
+  public void testCanonicalKey() {
+    Position position = new Position();
+    Position mirror = new Position();
+    for (int column : new int[] { 3, 3, 2, 6, 6, 5 }) {
+      position.play(column);
+      mirror.play(6 - column);
+    }
+    assertEquals(position.key(), mirror.mirroredKey());
+    assertEquals(mirror.key(), position.mirroredKey());
+    assertEquals(position.canonicalKey(), mirror.canonicalKey());
+    assertTrue(position.isCanonical() != mirror.isCanonical());
+    Position mirrored = position.isCanonical() ? mirror : position;
+    assertEquals(4, mirrored.canonicalColumn(2));
+    assertEquals(-1, mirrored.canonicalColumn(-1));
+
+    Position symmetric = new Position();
+    symmetric.play(3);
+    assertEquals(symmetric.key(), symmetric.mirroredKey());
+    assertEquals(2, symmetric.canonicalColumn(2));
+  }
+}
@@ -0,0 +1,58 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the AI playing random columns and the original AI built on it.
+ */
+public class RandomStrategyTest {
+
+  /**
+   * Tests that only the columns that are not full are picked, each about as often as the
+   * others, when all but two columns are full.
+   */
+  @Test
+  public void testPicksUniformlyAmongPlayableColumns() {
+    Position position = new Position();
+    for (int column : new int[] { 0, 1, 3, 4, 6 }) {
+      for (int row = 0 ; row < Position.ROW_LENGTH ; row++) {
+        position.play(column);
+      }
+    }
+    RandomStrategy strategy = new RandomStrategy(3);
+    int[] counts = new int[Position.COLUMN_LENGTH];
+    for (int i = 0 ; i < 10000 ; i++) {
+      counts[strategy.chooseColumn(position)]++;
+    }
+    assertEquals(10000, counts[2] + counts[5]);
+    assertTrue(Math.abs(counts[2] - counts[5]) < 500);
+  }
+
+  /**
+   * Tests that a seeded strategy picks the same columns again once it is seeded again.
+   */
+  @Test
+  public void testSeededColumnsRepeat() {
+    Position position = new Position();
+    RandomStrategy strategy = new RandomStrategy(11);
+    int[] columns = new int[50];
+    for (int i = 0 ; i < columns.length ; i++) {
+      columns[i] = strategy.chooseColumn(position);
+    }
+    strategy.setSeed(11);
+    for (int i = 0 ; i < columns.length ; i++) {
+      assertEquals(columns[i], strategy.chooseColumn(position));
+    }
+  }
+
+  /**
+   * Tests that the original AI still takes the winning column.
+   */
+  @Test
+  public void testOnePlyTakesWin() {
+    Position position = Position.of(5, 0, 5, 1, 5, 2);
+    assertEquals(5, new OnePlyStrategy(1).chooseColumn(position));
+  }
+}
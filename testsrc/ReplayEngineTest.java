@@ -0,0 +1,154 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is a class that tests replaying recorded games on the model.
+ */
+public class ReplayEngineTest {
+
+  private Path file;
+
+  @Before
+  public void setup() throws IOException {
+    file = Files.createTempFile("replay", ".c4g");
+    Files.delete(file);
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    Files.deleteIfExists(file);
+    Files.deleteIfExists(GameArchive.indexFileOf(file));
+  }
+
+  /**
+   * This is a listener counting the ends of the games it is notified of.
+   */
+  class GameOverCounter implements ConnectFourListener {
+    private final AtomicInteger gamesOver = new AtomicInteger();
+
+    @Override
+    public void gameOver(Status status, Player player) {
+      gamesOver.incrementAndGet();
+    }
+
+    @Override
+    public void clearBoard() {
+    }
+
+    @Override
+    public void gameStarted(Mode mode) {
+    }
+
+    @Override
+    public void updateBoard(Player[][] board, Player player, int row, int column) {
+    }
+
+    @Override
+    public void moveUndone(Player[][] board, Player player, int row, int column) {
+    }
+
+    @Override
+    public void alertNotYourTurn(Player player) {
+    }
+
+    @Override
+    public void alertColumnIsFull(Player player) {
+    }
+
+    @Override
+    public void disposeFrame() {
+    }
+  }
+
+  /**
+   * Tests that games played in both modes, among them games against the AI, are replayed to the
+   * recorded outcome, and that the listeners are notified of every game that has ended.
+   */
+  @Test
+  public void testReplayAgreesWithRecords() throws IOException, InterruptedException {
+    Random random = new Random(5);
+    ConnectFourModel model = new ConnectFourModel();
+    int ended = 0;
+    try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+      for (int game = 0 ; game < 500 ; game++) {
+        boolean single = game % 100 == 0;
+        model.startGame(single ? Mode.SINGLE : Mode.MULTI);
+        Player player = Player.ONE;
+        while (model.getStatus() == Status.IN_PROGRESS && model.getMoveCount() < 30) {
+          if (model.putDisc(player, random.nextInt(7)) && !single) {
+            player = player == Player.ONE ? Player.TWO : Player.ONE;
+          }
+        }
+        if (model.getStatus() != Status.IN_PROGRESS) {
+          ended++;
+        }
+        writer.write(model.toRecord());
+      }
+    }
+    GameArchive archive = GameArchive.open(file);
+    GameOverCounter counter = new GameOverCounter();
+    try (ReplayEngine engine = new ReplayEngine.Builder().listener(counter).build()) {
+      ReplayEngine.Result result = engine.replay(archive, 0, archive.size());
+      assertEquals(500, result.getGames());
+      assertEquals(0, result.getMismatches());
+      assertTrue(result.getGamesPerSecond() > 0);
+      assertEquals(ended, counter.gamesOver.get());
+      assertEquals(0, engine.getListeners().get(0).getQueueDepth());
+    }
+  }
+
+  /**
+   * Tests that a game the model does not end the recorded way is reported, whether its status
+   * differs or a move cannot be played.
+   */
+  @Test
+  public void testMismatches() throws IOException, InterruptedException {
+    int[] win = { 3, 2, 3, 2, 3, 2, 3 };
+    try (GameRecordWriter writer = GameRecordWriter.open(file)) {
+      writer.write(GameRecord.of(6, 7, 4, Mode.MULTI, Status.WIN, Player.ONE, 0, 0, win));
+      writer.write(GameRecord.of(6, 7, 4, Mode.MULTI, Status.IN_PROGRESS, Player.ONE, 0, 0,
+          win));
+      writer.write(GameRecord.of(6, 7, 4, Mode.MULTI, Status.WIN, Player.ONE, 0, 0,
+          Arrays.copyOf(win, 8)));
+      writer.write(GameRecord.of(6, 7, 4, Mode.MULTI, Status.IN_PROGRESS, Player.ONE, 0, 0,
+          new int[] { 0, 0, 0, 0, 0, 0, 0 }));
+      writer.write(GameRecord.of(7, 8, 4, Mode.SINGLE, Status.IN_PROGRESS, Player.ONE, 0, 0,
+          new int[] { 7, 7 }));
+    }
+    GameArchive archive = GameArchive.open(file);
+    try (ReplayEngine engine = new ReplayEngine.Builder().build()) {
+      ReplayEngine.Result result = engine.replay(archive, 0, archive.size());
+      assertEquals(5, result.getGames());
+      assertEquals(3, result.getMismatches());
+      assertEquals(Arrays.asList(1L, 2L, 3L), result.getFirstMismatches());
+    }
+  }
+
+  /**
+   * Tests that the moves of a game are paced by the delay.
+   */
+  @Test
+  public void testMoveDelay() {
+    GameRecord record = GameRecord.of(6, 7, 4, Mode.MULTI, Status.IN_PROGRESS, Player.ONE, 0,
+        0, new int[] { 0, 1, 2, 3 });
+    try (ReplayEngine engine = new ReplayEngine.Builder().moveDelayMillis(10).build()) {
+      long start = System.nanoTime();
+      assertTrue(engine.replay(record));
+      assertTrue(System.nanoTime() - start >= 40000000L);
+      assertFalse(engine.replay(GameRecord.of(6, 7, 4, Mode.MULTI, Status.WIN, Player.ONE, 0, 0,
+          new int[] { 0 })));
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the games played between AI strategies.
+ */
+public class SelfPlayArenaTest {
+
+  /**
+   * Tests that a seeded arena plays the same games whatever the number of threads.
+   */
+  @Test
+  public void testSeededArenaIsDeterministic() throws InterruptedException {
+    SelfPlayArena.Result single = new SelfPlayArena.Builder("one-ply", "random").games(1000)
+        .threads(1).seed(7).build().run();
+    SelfPlayArena.Result parallel = new SelfPlayArena.Builder("one-ply", "random").games(1000)
+        .threads(3).seed(7).build().run();
+    assertEquals(1000, single.getGames());
+    assertEquals(single.getWins(), parallel.getWins());
+    assertEquals(single.getDraws(), parallel.getDraws());
+    assertEquals(single.getLosses(), parallel.getLosses());
+    assertTrue(single.getGamesPerSecond() > 0);
+  }
+
+  /**
+   * Tests that the search beats random moves, and that the confidence interval holds the rate.
+   */
+  @Test
+  public void testSearchBeatsRandom() throws InterruptedException {
+    SelfPlayArena.Result result = new SelfPlayArena.Builder("depth-4", "random").games(100)
+        .threads(2).seed(1).build().run();
+    double rate = (double) result.getWins() / result.getGames();
+    assertTrue(rate > 0.9);
+    double[] interval = result.confidenceInterval(result.getWins());
+    assertTrue(interval[0] <= rate && rate <= interval[1] + 1e-9);
+    assertTrue(interval[1] <= 1.0);
+  }
+
+  /**
+   * Tests that a strategy the arena does not know is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownStrategy() {
+    new SelfPlayArena.Builder("depth-x", "random");
+  }
+
+  /**
+   * Tests that the names of the strategies are checked without creating them, accepting every
+   * kind of strategy and rejecting the numbers that the strategies would reject.
+   */
+  @Test
+  public void testCheckStrategy() {
+    for (String name : new String[] { "random", "one-ply", "depth-4", "mcts-10", "eval-2" }) {
+      SelfPlayArena.checkStrategy(name);
+    }
+    for (String name : new String[] { "depth-0", "mcts-", "eval--1", "eval-4000000000", "best" }) {
+      try {
+        SelfPlayArena.checkStrategy(name);
+        fail("accepted " + name);
+      }
+      catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the lock-free transposition table shared by search threads.
+ */
+public class SharedTranspositionTableTest {
+
+  private static final int THREADS = 8;
+  private static final int OPERATIONS = 500000;
+
+  /**
+   * Tests that every field of an entry comes back as it was stored, and that the deeper entry
+   * of a bucket is kept.
+   */
+  @Test
+  public void testStoreAndProbe() {
+    SharedTranspositionTable table = new SharedTranspositionTable(1);
+    long[] keys = collidingKeys(table, 3, new Random(7));
+    assertEquals(TranspositionTable.NOT_FOUND, table.probe(keys[0]));
+    table.store(keys[0], -5, TranspositionTable.LOWER_BOUND, 20, 4);
+    table.store(keys[1], 6, TranspositionTable.EXACT, 2, 1);
+    table.store(keys[2], 7, TranspositionTable.EXACT, 1, 2);
+    int entry = table.probe(keys[0]);
+    assertEquals(-5, TranspositionTable.scoreOf(entry));
+    assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.flagOf(entry));
+    assertEquals(20, TranspositionTable.depthOf(entry));
+    assertEquals(4, TranspositionTable.moveOf(entry));
+    assertEquals(TranspositionTable.NOT_FOUND, table.probe(keys[1]));
+    assertEquals(7, TranspositionTable.scoreOf(table.probe(keys[2])));
+    table.clear();
+    assertEquals(TranspositionTable.NOT_FOUND, table.probe(keys[0]));
+  }
+
+  /**
+   * Stress tests the table with many threads storing and probing a handful of keys that all
+   * fall into the same two buckets, so slots are overwritten while being read all the time.
+   * Every entry is derived from its key, so an entry torn between two writes would show up as
+   * a hit whose fields do not match the key.
+   */
+  @Test
+  public void testNoTornEntriesUnderContention() throws InterruptedException {
+    final SharedTranspositionTable table = new SharedTranspositionTable(1);
+    Random random = new Random(42);
+    long[] first = collidingKeys(table, 8, random);
+    long[] second = collidingKeys(table, 8, random);
+    final long[] keys = new long[first.length + second.length];
+    System.arraycopy(first, 0, keys, 0, first.length);
+    System.arraycopy(second, 0, keys, first.length, second.length);
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong torn = new AtomicLong();
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0 ; t < THREADS ; t++) {
+      final int seed = t;
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          Random random = new Random(seed);
+          try {
+            start.await();
+          }
+          catch (InterruptedException e) {
+            return;
+          }
+          for (int i = 0 ; i < OPERATIONS ; i++) {
+            long key = keys[random.nextInt(keys.length)];
+            if (random.nextBoolean()) {
+              table.store(key, scoreOf(key), flagOf(key), random.nextInt(43), moveOf(key));
+            }
+            else {
+              int entry = table.probe(key);
+              if (entry != TranspositionTable.NOT_FOUND) {
+                hits.incrementAndGet();
+                if (TranspositionTable.scoreOf(entry) != scoreOf(key)
+                    || TranspositionTable.flagOf(entry) != flagOf(key)
+                    || TranspositionTable.moveOf(entry) != moveOf(key)) {
+                  torn.incrementAndGet();
+                }
+              }
+            }
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(hits.get() > 0);
+    assertEquals(0, torn.get());
+  }
+
+  /**
+   * Tests that the parallel search plays the move that cannot be stopped, and that every
+   * thread took part in the search.
+   */
+  @Test
+  public void testLazySmpFindsForcedWin() {
+    Position position = Position.of(3, 3, 2, 2);
+    LazySmpStrategy strategy = new LazySmpStrategy(4, 4,
+        new NegamaxStrategy.Builder().maxDepth(8).timeBudgetMillis(0));
+    int column = strategy.chooseColumn(position);
+    strategy.shutdown();
+    assertTrue(column == 1 || column == 4);
+    assertTrue(strategy.getNodeCount() > 0);
+    assertEquals(4, strategy.getThreads());
+  }
+
+  private static int scoreOf(long key) {
+    return (int) (key % 43) - 21;
+  }
+
+  private static int flagOf(long key) {
+    return (int) ((key >>> 8) % 3);
+  }
+
+  private static int moveOf(long key) {
+    return (int) ((key >>> 16) % 7);
+  }
+
+  /**
+   * Finds random 49-bit keys that fall into the same bucket of the table.
+   */
+  private long[] collidingKeys(SharedTranspositionTable table, int count, Random random) {
+    long[] keys = new long[count];
+    keys[0] = random.nextLong() & ((1L << 49) - 1);
+    int found = 1;
+    while (found < count) {
+      long key = random.nextLong() & ((1L << 49) - 1);
+      if (table.bucketOf(key) == table.bucketOf(keys[0])) {
+        keys[found++] = key;
+      }
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,108 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the evaluation of threats, and the search that scores the
+ * positions with it.
+ */
+public class ThreatEvaluatorTest {
+
+  /**
+   * Tests the windows and threats counted on a bottom row of three discs: a threat on each side,
+   * both on the first row from the bottom, and the windows of two discs around them.
+   */
+  @Test
+  public void testThreatsOfBottomRow() {
+    ThreatEvaluator evaluator = new ThreatEvaluator(6, 7, 4);
+    for (int column = 1 ; column <= 3 ; column++) {
+      evaluator.place(Player.ONE, 5, column);
+    }
+    assertEquals(2, evaluator.getThreats(Player.ONE, true));
+    assertEquals(0, evaluator.getThreats(Player.ONE, false));
+    assertEquals(2, evaluator.getOpenWindows(Player.ONE, 3));
+    assertEquals(1, evaluator.getOpenWindows(Player.ONE, 2));
+    assertTrue(evaluator.evaluate(Player.TWO, Player.ONE) < 0);
+
+    evaluator.place(Player.TWO, 5, 4);
+    assertEquals(1, evaluator.getThreats(Player.ONE, true));
+    evaluator.place(Player.TWO, 5, 0);
+    assertEquals(0, evaluator.getThreats(Player.ONE, true));
+    evaluator.remove(5, 0);
+    evaluator.remove(5, 4);
+    assertEquals(2, evaluator.getThreats(Player.ONE, true));
+  }
+
+  /**
+   * Tests that the counts kept up move by move, through random games played and taken back,
+   * always agree with the counts of an evaluation loaded from the board.
+   */
+  @Test
+  public void testIncrementalMatchesLoad() {
+    int[][] dimensions = { { 6, 7, 4 }, { 7, 9, 4 }, { 9, 9, 5 } };
+    Random random = new Random(3);
+    for (int[] size : dimensions) {
+      Board board = Board.of(size[0], size[1], size[2]);
+      ThreatEvaluator incremental = new ThreatEvaluator(size[0], size[1], size[2]);
+      ThreatEvaluator loaded = new ThreatEvaluator(size[0], size[1], size[2]);
+      int[] moves = new int[size[0] * size[1]];
+      int count = 0;
+      for (int step = 0 ; step < 2000 ; step++) {
+        Player side = count % 2 == 0 ? Player.ONE : Player.AI;
+        Player other = count % 2 == 0 ? Player.AI : Player.ONE;
+        int column = random.nextInt(size[1]);
+        if (count > 0 && (random.nextInt(3) == 0 || board.isFull())) {
+          column = moves[--count];
+          incremental.remove(board.undo(column), column);
+        }
+        else if (!board.columnIsFull(column)) {
+          incremental.place(side, board.play(side, column), column);
+          moves[count++] = column;
+        }
+        loaded.load(board);
+        assertEquals(loaded.evaluate(side, other), incremental.evaluate(side, other));
+        for (Player player : new Player[] { Player.ONE, Player.AI }) {
+          for (int discs = 0 ; discs <= size[2] ; discs++) {
+            assertEquals(loaded.getOpenWindows(player, discs),
+                incremental.getOpenWindows(player, discs));
+          }
+          assertEquals(loaded.getThreats(player, true), incremental.getThreats(player, true));
+          assertEquals(loaded.getThreats(player, false), incremental.getThreats(player, false));
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that the search opens in the center and blocks a win on a larger board, leaving the
+   * board it was given as it was, and sees a win three plies ahead on the classic board.
+   */
+  @Test
+  public void testHeuristicSearch() {
+    HeuristicStrategy strategy = new HeuristicStrategy.Builder().maxDepth(6)
+        .timeBudgetMillis(0).build();
+    Board board = Board.of(7, 9, 4);
+    assertEquals(4, strategy.chooseColumn(board, Player.AI, Player.ONE));
+    assertEquals(6, strategy.getDepthReached());
+
+    board.play(Player.ONE, 2);
+    board.play(Player.ONE, 3);
+    board.play(Player.ONE, 4);
+    board.play(Player.AI, 1);
+    Player[][] before = new Player[7][9];
+    board.copyInto(before);
+    assertEquals(5, strategy.chooseColumn(board, Player.AI, Player.ONE));
+    Player[][] after = new Player[7][9];
+    board.copyInto(after);
+    assertArrayEquals(before, after);
+
+    Position position = Position.of(2, 2, 3, 3);
+    int column = strategy.chooseColumn(position);
+    assertTrue(column == 1 || column == 4);
+    assertTrue(strategy.getScore() > HeuristicStrategy.WIN_SCORE - Position.SIZE);
+  }
+}
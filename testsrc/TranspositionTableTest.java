@@ -0,0 +1,96 @@
+package edu.nyu.pqs.connectfour;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * This is a class that tests the transposition table used by the search.
+ */
+public class TranspositionTableTest {
+
+  /**
+   * Tests that every field of an entry comes back as it was stored.
+   */
+  @Test
+  public void testStoreAndProbe() {
+    TranspositionTable table = new TranspositionTable(1);
+    long key = Position.of(3, 3, 2).key();
+    assertEquals(TranspositionTable.NOT_FOUND, table.probe(key));
+    table.store(key, -18, TranspositionTable.UPPER_BOUND, 42, 6);
+    int entry = table.probe(key);
+    assertEquals(-18, TranspositionTable.scoreOf(entry));
+    assertEquals(TranspositionTable.UPPER_BOUND, TranspositionTable.flagOf(entry));
+    assertEquals(42, TranspositionTable.depthOf(entry));
+    assertEquals(6, TranspositionTable.moveOf(entry));
+    table.store(key, 21, TranspositionTable.EXACT, 0, -1);
+    entry = table.probe(key);
+    assertEquals(21, TranspositionTable.scoreOf(entry));
+    assertEquals(-1, TranspositionTable.moveOf(entry));
+  }
+
+  /**
+   * Tests that the two-tier policy keeps the deep entry of a bucket while shallower entries
+   * take turns in the other slot.
+   */
+  @Test
+  public void testTwoTierKeepsDeepEntry() {
+    TranspositionTable table = new TranspositionTable(1);
+    long[] keys = collidingKeys(table, 3);
+    table.store(keys[0], 1, TranspositionTable.EXACT, 20, 3);
+    table.store(keys[1], 2, TranspositionTable.EXACT, 2, 3);
+    table.store(keys[2], 3, TranspositionTable.EXACT, 1, 3);
+    assertEquals(1, TranspositionTable.scoreOf(table.probe(keys[0])));
+    assertEquals(TranspositionTable.NOT_FOUND, table.probe(keys[1]));
+    assertEquals(3, TranspositionTable.scoreOf(table.probe(keys[2])));
+  }
+
+  /**
+   * Tests that the depth-preferred policy refuses an entry shallower than both slots.
+   */
+  @Test
+  public void testDepthPreferredDropsShallowEntry() {
+    TranspositionTable table = new TranspositionTable(1,
+        TranspositionTable.Replacement.DEPTH_PREFERRED);
+    long[] keys = collidingKeys(table, 3);
+    table.store(keys[0], 1, TranspositionTable.EXACT, 10, 3);
+    table.store(keys[1], 2, TranspositionTable.EXACT, 8, 3);
+    table.store(keys[2], 3, TranspositionTable.EXACT, 4, 3);
+    assertEquals(TranspositionTable.NOT_FOUND, table.probe(keys[2]));
+    table.store(keys[2], 3, TranspositionTable.EXACT, 9, 3);
+    assertEquals(1, TranspositionTable.scoreOf(table.probe(keys[0])));
+    assertEquals(TranspositionTable.NOT_FOUND, table.probe(keys[1]));
+    assertEquals(3, TranspositionTable.scoreOf(table.probe(keys[2])));
+  }
+
+  /**
+   * Tests that the search plays the same move with and without a table at a fixed depth,
+   * and that the table is actually hit.
+   */
+  @Test
+  public void testSearchWithTableAgreesWithPlainSearch() {
+    Position position = Position.of(3, 3, 4, 2, 2);
+    NegamaxStrategy plain = new NegamaxStrategy.Builder().maxDepth(9).timeBudgetMillis(0)
+        .transpositionTableMegabytes(0).build();
+    NegamaxStrategy cached = new NegamaxStrategy.Builder().maxDepth(9).timeBudgetMillis(0)
+        .transpositionTableMegabytes(1).build();
+    assertEquals(plain.chooseColumn(position), cached.chooseColumn(position));
+    assertTrue(cached.getTableHits() > 0);
+    assertTrue(cached.getNodeCount() < plain.getNodeCount());
+  }
+
+  /**
+   * Finds keys that fall into the same bucket of the table.
+   */
+  private long[] collidingKeys(TranspositionTable table, int count) {
+    long[] keys = new long[count];
+    keys[0] = Position.of(3).key();
+    int found = 1;
+    for (long key = 1 ; found < count ; key++) {
+      if (key != keys[0] && table.bucketOf(key) == table.bucketOf(keys[0])) {
+        keys[found++] = key;
+      }
+    }
+    return keys;
+  }
+}